@@ -0,0 +1,552 @@
+import java.io.*;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Versioned change feed used to sync one user's habits between HabitPal
+ * instances (e.g. two machines) through a shared directory.
+ *
+ * Every local change is recorded as an operation stamped with this replica's
+ * id, a per-replica sequence number and a Lamport clock. State is merged
+ * conflict-free:
+ *  - habit metadata (frequency, total days, reminder) is last-writer-wins
+ *    per habit, and a delete wins over metadata older than it;
+ *  - completions are a last-writer-wins element set per (habit, day), so a
+ *    mark on one machine and an unmark on another resolve the same way
+ *    everywhere; completions stamped before the habit's latest delete are
+ *    dropped, so a new habit of the same name starts empty.
+ * Stamps are ordered by (lamport, replica id), so every replica picks the
+ * same winner regardless of the order in which feeds are read.
+ *
+ * A replica records nothing until its first sync, which publishes a snapshot
+ * of the current habits (see {@link #startPublishing()}). On start,
+ * {@link #compact(LocalDate)} collapses the per-day states before the archive
+ * boundary into one summary stamp per habit and rewrites the journal as the
+ * merged state, so neither the heap nor the replay grows with old history.
+ *
+ * Files:
+ *  changes_<user>.log        (data dir) merged state plus ops since, replayed on start
+ *  sync_<user>.txt           (data dir) replica id, clocks, exported seq, read cursors per peer
+ *  feed_<user>_<replica>.log (shared dir) append-only ops written by that replica (8 hex chars)
+ *
+ * A sync appends only this replica's ops that were not exported yet, and
+ * reads each peer feed from the byte offset where the previous sync stopped.
+ */
+public class ChangeFeed {
+    public static final String META = "META";
+    public static final String DELETE = "DEL";
+    public static final String DONE = "DONE";
+    public static final String UNDONE = "UNDONE";
+    private static final String ARCHIVED = "ARCH";      // journal only: summary stamp of collapsed days
+
+    /** Receives winning remote changes; implemented by HabitManager */
+    public interface Target {
+        /** Newer metadata won for habit; create the habit if it does not exist */
+        void putMeta(String habit, String frequency, int totalDays, String reminderTime);
+        void deleteHabit(String habit);
+        void setDone(String habit, LocalDate day, boolean done);
+    }
+
+    /** Bytes and operation counts moved by one sync */
+    public static class SyncStats {
+        public int sent, received, applied;
+        public long bytesWritten, bytesRead;
+
+        @Override
+        public String toString() {
+            return "sent " + sent + " ops (" + bytesWritten + " B), received " + received
+                    + " ops (" + bytesRead + " B), applied " + applied;
+        }
+    }
+
+    /** One recorded operation, stored as one CSV line with URL-encoded text fields */
+    static class Op {
+        final String replica;
+        final long seq;
+        final long lamport;
+        final String type;
+        final String habit;
+        final String payload;
+
+        Op(String replica, long seq, long lamport, String type, String habit, String payload) {
+            this.replica = replica;
+            this.seq = seq;
+            this.lamport = lamport;
+            this.type = type;
+            this.habit = habit;
+            this.payload = payload;
+        }
+
+        String toLine() {
+            return replica + "," + seq + "," + lamport + "," + type + "," + enc(habit) + "," + enc(payload);
+        }
+
+        static Op parse(String line) {
+            String[] p = line.split(",", -1);
+            if (p.length != 6) return null;
+            try {
+                return new Op(p[0], Long.parseLong(p[1]), Long.parseLong(p[2]), p[3], dec(p[4]), dec(p[5]));
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    /** Lamport stamp with the replica id as tie-breaker */
+    private static final class Stamp implements Comparable<Stamp> {
+        final long lamport;
+        final String replica;
+
+        Stamp(long lamport, String replica) {
+            this.lamport = lamport;
+            this.replica = replica;
+        }
+
+        @Override
+        public int compareTo(Stamp o) {
+            int c = Long.compare(lamport, o.lamport);
+            return c != 0 ? c : replica.compareTo(o.replica);
+        }
+    }
+
+    private static final class DayState {
+        Stamp stamp;
+        boolean done;
+    }
+
+    private final File journalFile;
+    private final File stateFile;
+    private final String username;
+    private final String replicaId;
+
+    private String folder = "";                                      // last shared folder used
+    private boolean publishing;                                      // false until the first sync
+    private long lamport = 0;
+    private long localSeq = 0;
+    private long exportedSeq = 0;
+    private final Map<String, Long> seen = new HashMap<>();          // vector clock: replica -> max seq
+    private final Map<String, Long> cursors = new HashMap<>();       // peer feed -> byte offset read
+    private final List<Op> unexported = new ArrayList<>();
+
+    private final Map<String, Stamp> metaStamps = new HashMap<>();
+    private final Map<String, String> metaPayloads = new HashMap<>();
+    private final Map<String, Stamp> deleteStamps = new HashMap<>();
+    private final Map<String, Map<Long, DayState>> dayStates = new HashMap<>();
+
+    // days before archivedBefore (epoch day) are collapsed into one newest stamp per habit
+    private long archivedBefore = Long.MIN_VALUE;
+    private final Map<String, Stamp> archivedStamps = new HashMap<>();
+
+    public ChangeFeed(File dataDir, String username) {
+        this.username = username;
+        this.journalFile = new File(dataDir, "changes_" + username + ".log");
+        this.stateFile = new File(dataDir, "sync_" + username + ".txt");
+        this.replicaId = loadState();
+        this.publishing = !folder.isEmpty();
+        replayJournal();
+    }
+
+    public String getReplicaId() { return replicaId; }
+
+    /** Shared folder of the last sync, or "" if never synced */
+    public String getFolder() { return folder; }
+
+    /** False until the first sync; until then nothing is recorded */
+    public boolean isPublishing() { return publishing; }
+
+    /**
+     * Starts recording local changes. The caller then records a snapshot of
+     * every habit, which stands in for the changes made before the first sync.
+     */
+    public void startPublishing() { publishing = true; }
+
+    // ================= RECORD LOCAL CHANGES =================
+
+    public void recordMeta(Habit h) {
+        record(META, h.getName(), h.getFrequency() + "|" + h.getTotalDays() + "|" + h.getReminderTime());
+    }
+
+    public void recordDelete(String habit) {
+        record(DELETE, habit, "");
+    }
+
+    public void recordDone(String habit, Collection<LocalDate> days, boolean done) {
+        if (days.isEmpty()) return;
+        record(done ? DONE : UNDONE, habit, Habit.encodeCompletionRuns(days));
+    }
+
+    /** Records h as if newly created here: metadata plus all its completions, archived ones included */
+    public void recordSnapshot(Habit h, Collection<LocalDate> archived) {
+        recordMeta(h);
+        Set<LocalDate> all = new TreeSet<>(archived);
+        all.addAll(h.getCompletedDates());
+        recordDone(h.getName(), all, true);
+    }
+
+    private void record(String type, String habit, String payload) {
+        if (!publishing) return;
+        Op op = new Op(replicaId, ++localSeq, ++lamport, type, habit, payload);
+        seen.put(replicaId, op.seq);
+        absorb(op, null);
+        unexported.add(op);
+        appendJournal(Collections.singletonList(op));
+    }
+
+    // ================= SYNC =================
+
+    /**
+     * Exchanges deltas with every other replica of this user in sharedDir and
+     * applies winning remote changes to target. Safe to call repeatedly;
+     * operations already seen are skipped.
+     */
+    public SyncStats sync(File sharedDir, Target target) throws IOException {
+        if (!sharedDir.isDirectory() && !sharedDir.mkdirs()) {
+            throw new IOException("Cannot create sync folder " + sharedDir);
+        }
+        SyncStats stats = new SyncStats();
+        folder = sharedDir.getPath();
+
+        // 1. export our new ops
+        if (!unexported.isEmpty()) {
+            File own = feedFile(sharedDir, replicaId);
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(own, true), StandardCharsets.UTF_8))) {
+                for (Op op : unexported) {
+                    String line = op.toLine() + "\n";
+                    w.write(line);
+                    stats.bytesWritten += line.getBytes(StandardCharsets.UTF_8).length;
+                    stats.sent++;
+                }
+            }
+            exportedSeq = unexported.get(unexported.size() - 1).seq;
+            unexported.clear();
+        }
+
+        // 2. import peer ops from where we stopped last time
+        // exact match: user "bob" must not pick up feed_bob_x_<id>.log of user "bob_x"
+        Pattern feedName = Pattern.compile("feed_" + Pattern.quote(username) + "_([0-9a-f]{8})\\.log");
+        File[] feeds = sharedDir.listFiles((d, n) -> feedName.matcher(n).matches());
+        List<Op> received = new ArrayList<>();
+        if (feeds != null) {
+            Arrays.sort(feeds);
+            for (File f : feeds) {
+                Matcher m = feedName.matcher(f.getName());
+                if (!m.matches()) continue;
+                String peer = m.group(1);
+                if (peer.equals(replicaId)) continue;
+                long offset = cursors.getOrDefault(peer, 0L);
+                if (f.length() <= offset) continue;
+
+                byte[] buf;
+                try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+                    raf.seek(offset);
+                    buf = new byte[(int) (raf.length() - offset)];
+                    raf.readFully(buf);
+                }
+                // only consume complete lines; a peer may be mid-append
+                int end = buf.length;
+                while (end > 0 && buf[end - 1] != '\n') end--;
+                if (end == 0) continue;
+                stats.bytesRead += end;
+                cursors.put(peer, offset + end);
+
+                for (String line : new String(buf, 0, end, StandardCharsets.UTF_8).split("\n")) {
+                    Op op = Op.parse(line);
+                    if (op == null) continue;
+                    stats.received++;
+                    if (op.seq <= seen.getOrDefault(op.replica, 0L)) continue;
+                    seen.put(op.replica, op.seq);
+                    lamport = Math.max(lamport, op.lamport);
+                    received.add(op);
+                    if (absorb(op, target)) stats.applied++;
+                }
+            }
+        }
+
+        appendJournal(received);
+        saveState();
+        return stats;
+    }
+
+    static File feedFile(File sharedDir, String replica, String username) {
+        return new File(sharedDir, "feed_" + username + "_" + replica + ".log");
+    }
+
+    private File feedFile(File sharedDir, String replica) {
+        return feedFile(sharedDir, replica, username);
+    }
+
+    // ================= MERGE =================
+
+    /**
+     * Folds op into the stamp tables and, if target is not null, pushes the
+     * changes that won to it. Returns true if anything won.
+     */
+    private boolean absorb(Op op, Target target) {
+        Stamp s = new Stamp(op.lamport, op.replica);
+        switch (op.type) {
+            case META: {
+                Stamp cur = metaStamps.get(op.habit);
+                if (cur != null && cur.compareTo(s) >= 0) return false;
+                metaStamps.put(op.habit, s);
+                metaPayloads.put(op.habit, op.payload);
+                Stamp del = deleteStamps.get(op.habit);
+                if (del != null && del.compareTo(s) > 0) return false;
+                if (target != null) {
+                    String[] p = op.payload.split("\\|", -1);
+                    String freq = p.length > 0 ? p[0] : "Daily";
+                    int total = 0;
+                    try { total = p.length > 1 ? Integer.parseInt(p[1]) : 0; } catch (NumberFormatException ignore) {}
+                    String reminder = p.length > 2 ? p[2] : "";
+                    target.putMeta(op.habit, freq, total, reminder);
+                }
+                return true;
+            }
+            case DELETE: {
+                Stamp cur = deleteStamps.get(op.habit);
+                if (cur != null && cur.compareTo(s) >= 0) return false;
+                deleteStamps.put(op.habit, s);
+                // completions from before the delete must not come back with a new habit of that name
+                Map<Long, DayState> old = dayStates.get(op.habit);
+                if (old != null) {
+                    old.values().removeIf(st -> st.stamp.compareTo(s) < 0);
+                    if (old.isEmpty()) dayStates.remove(op.habit);
+                }
+                Stamp summary = archivedStamps.get(op.habit);
+                if (summary != null && summary.compareTo(s) < 0) archivedStamps.remove(op.habit);
+                Stamp meta = metaStamps.get(op.habit);
+                if (meta != null && meta.compareTo(s) > 0) return false;
+                if (target != null) target.deleteHabit(op.habit);
+                return true;
+            }
+            case DONE:
+            case UNDONE: {
+                Stamp del = deleteStamps.get(op.habit);
+                if (del != null && del.compareTo(s) > 0) return false;   // the habit was deleted after this
+                boolean done = op.type.equals(DONE);
+                Set<LocalDate> days = new LinkedHashSet<>();
+                Habit.decodeCompletionRuns(op.payload, days);
+                Map<Long, DayState> states = dayStates.computeIfAbsent(op.habit, k -> new HashMap<>());
+                boolean any = false;
+                Stamp summary = archivedStamps.get(op.habit);
+                for (LocalDate d : days) {
+                    // a collapsed day only changes for an op newer than every collapsed change
+                    if (d.toEpochDay() < archivedBefore && !states.containsKey(d.toEpochDay())
+                            && summary != null && summary.compareTo(s) >= 0) continue;
+                    DayState st = states.computeIfAbsent(d.toEpochDay(), k -> new DayState());
+                    if (st.stamp != null && st.stamp.compareTo(s) >= 0) continue;
+                    st.stamp = s;
+                    st.done = done;
+                    any = true;
+                    if (target != null) target.setDone(op.habit, d, done);
+                }
+                return any;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Collapses day states before boundary into a summary stamp per habit (the
+     * newest collapsed stamp) and rewrites the journal as the merged state plus
+     * the ops not exported yet. A late op for a collapsed day then wins only if
+     * it is newer than the summary; the day's value itself lives in cold storage.
+     * Before the first sync there is nothing to keep, so the journal is dropped.
+     */
+    public void compact(LocalDate boundary) {
+        if (!publishing) {
+            metaStamps.clear();
+            metaPayloads.clear();
+            deleteStamps.clear();
+            dayStates.clear();
+            archivedStamps.clear();
+            unexported.clear();
+            if (journalFile.exists() && !journalFile.delete()) {
+                System.err.println("Could not remove change journal " + journalFile);
+            }
+            return;
+        }
+        archivedBefore = Math.max(archivedBefore, boundary.toEpochDay());
+        for (Iterator<Map.Entry<String, Map<Long, DayState>>> it = dayStates.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Map<Long, DayState>> e = it.next();
+            for (Iterator<Map.Entry<Long, DayState>> days = e.getValue().entrySet().iterator(); days.hasNext(); ) {
+                Map.Entry<Long, DayState> d = days.next();
+                if (d.getKey() >= archivedBefore) continue;
+                Stamp cur = archivedStamps.get(e.getKey());
+                if (cur == null || cur.compareTo(d.getValue().stamp) < 0) archivedStamps.put(e.getKey(), d.getValue().stamp);
+                days.remove();
+            }
+            if (e.getValue().isEmpty()) it.remove();
+        }
+
+        // clocks go to the state file first: the rewritten journal no longer carries them
+        saveState();
+        List<Op> ops = new ArrayList<>();
+        for (Map.Entry<String, Stamp> e : archivedStamps.entrySet()) {
+            ops.add(stateOp(e.getValue(), ARCHIVED, e.getKey(), String.valueOf(archivedBefore)));
+        }
+        for (Map.Entry<String, Stamp> e : metaStamps.entrySet()) {
+            ops.add(stateOp(e.getValue(), META, e.getKey(), metaPayloads.getOrDefault(e.getKey(), "")));
+        }
+        for (Map.Entry<String, Stamp> e : deleteStamps.entrySet()) {
+            ops.add(stateOp(e.getValue(), DELETE, e.getKey(), ""));
+        }
+        for (Map.Entry<String, Map<Long, DayState>> e : dayStates.entrySet()) {
+            // days sharing a stamp and value (e.g. from one snapshot) become one op again
+            Map<DayState, List<LocalDate>> groups = new TreeMap<>((a, b) -> {
+                int c = a.stamp.compareTo(b.stamp);
+                return c != 0 ? c : Boolean.compare(a.done, b.done);
+            });
+            for (Map.Entry<Long, DayState> d : e.getValue().entrySet()) {
+                groups.computeIfAbsent(d.getValue(), k -> new ArrayList<>()).add(LocalDate.ofEpochDay(d.getKey()));
+            }
+            for (Map.Entry<DayState, List<LocalDate>> g : groups.entrySet()) {
+                ops.add(stateOp(g.getKey().stamp, g.getKey().done ? DONE : UNDONE, e.getKey(),
+                        Habit.encodeCompletionRuns(g.getValue())));
+            }
+        }
+        ops.addAll(unexported);
+
+        File tmp = new File(journalFile.getPath() + ".tmp");
+        try {
+            try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                for (Op op : ops) {
+                    w.write(op.toLine());
+                    w.write('\n');
+                }
+            }
+            Files.move(tmp.toPath(), journalFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error compacting change journal: " + e.getMessage());
+        }
+    }
+
+    /** A journal line carrying merged state; seq 0 marks it as not exportable */
+    private static Op stateOp(Stamp s, String type, String habit, String payload) {
+        return new Op(s.replica, 0, s.lamport, type, habit, payload);
+    }
+
+    /** Days currently marked done for habit according to the merged feed */
+    public Set<LocalDate> doneDays(String habit) {
+        Set<LocalDate> out = new TreeSet<>();
+        Map<Long, DayState> states = dayStates.get(habit);
+        if (states == null) return out;
+        for (Map.Entry<Long, DayState> e : states.entrySet()) {
+            if (e.getValue().done) out.add(LocalDate.ofEpochDay(e.getKey()));
+        }
+        return out;
+    }
+
+    // ================= PERSISTENCE =================
+
+    private void appendJournal(List<Op> ops) {
+        if (ops.isEmpty()) return;
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(journalFile, true), StandardCharsets.UTF_8))) {
+            for (Op op : ops) {
+                w.write(op.toLine());
+                w.write('\n');
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing change journal: " + e.getMessage());
+        }
+    }
+
+    private void replayJournal() {
+        if (!journalFile.exists()) return;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Op op = Op.parse(line);
+                if (op == null) continue;
+                lamport = Math.max(lamport, op.lamport);
+                if (op.type.equals(ARCHIVED)) {
+                    try { archivedBefore = Math.max(archivedBefore, Long.parseLong(op.payload)); }
+                    catch (NumberFormatException ignore) {}
+                    Stamp s = new Stamp(op.lamport, op.replica);
+                    archivedStamps.merge(op.habit, s, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+                    continue;
+                }
+                seen.merge(op.replica, op.seq, Math::max);
+                if (op.replica.equals(replicaId)) {
+                    localSeq = Math.max(localSeq, op.seq);
+                    if (op.seq > exportedSeq) unexported.add(op);
+                }
+                absorb(op, null);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading change journal: " + e.getMessage());
+        }
+    }
+
+    /** Reads sync_<user>.txt and returns the replica id, creating one if needed */
+    private String loadState() {
+        String id = null;
+        try (BufferedReader br = new BufferedReader(new FileReader(stateFile))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] p = line.split(",", -1);
+                try {
+                    if (p[0].equals("replica") && p.length == 2) id = p[1];
+                    else if (p[0].equals("folder")) folder = line.substring("folder,".length());
+                    else if (p[0].equals("exported") && p.length == 2) exportedSeq = Long.parseLong(p[1]);
+                    else if (p[0].equals("seq") && p.length == 2) localSeq = Long.parseLong(p[1]);
+                    else if (p[0].equals("lamport") && p.length == 2) lamport = Long.parseLong(p[1]);
+                    else if (p[0].equals("seen") && p.length == 3) seen.put(p[1], Long.parseLong(p[2]));
+                    else if (p[0].equals("cursor") && p.length == 3) cursors.put(p[1], Long.parseLong(p[2]));
+                } catch (NumberFormatException ignore) {}
+            }
+        } catch (IOException ignored) {}
+
+        if (id == null || id.isEmpty()) {
+            id = UUID.randomUUID().toString().substring(0, 8);
+            writeState(id);
+        }
+        return id;
+    }
+
+    private void saveState() { writeState(replicaId); }
+
+    private void writeState(String id) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(stateFile))) {
+            bw.write("replica," + id);
+            bw.newLine();
+            bw.write("folder," + folder);
+            bw.newLine();
+            bw.write("exported," + exportedSeq);
+            bw.newLine();
+            bw.write("seq," + localSeq);
+            bw.newLine();
+            bw.write("lamport," + lamport);
+            bw.newLine();
+            for (Map.Entry<String, Long> e : seen.entrySet()) {
+                bw.write("seen," + e.getKey() + "," + e.getValue());
+                bw.newLine();
+            }
+            for (Map.Entry<String, Long> e : cursors.entrySet()) {
+                bw.write("cursor," + e.getKey() + "," + e.getValue());
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving sync state: " + e.getMessage());
+        }
+    }
+
+    private static String enc(String s) {
+        return URLEncoder.encode(s == null ? "" : s, StandardCharsets.UTF_8);
+    }
+
+    private static String dec(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+}
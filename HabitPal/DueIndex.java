@@ -0,0 +1,156 @@
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Index of habits by reminder minute-of-day and due weekday, so "what is due
+ * today / in the next hour and not yet done" is answered without scanning
+ * every habit.
+ *
+ * Two levels:
+ *  - per weekday, the habits scheduled on that day, by reminder minute
+ *    (habits without a reminder are kept under {@link #NO_REMINDER});
+ *  - for the current day only, the habits of that weekday still due, i.e.
+ *    not done today and, for weekly kinds, not yet at the week's target.
+ * The day level is rebuilt from the weekday level once when the date
+ * changes; afterwards {@link #update(Habit)} keeps both levels current in
+ * O(log n) per change. Queries cost O(log n + results).
+ *
+ * HabitManager calls update/remove whenever a habit is added, edited,
+ * deleted or (un)completed. Not thread-safe; used on the EDT like the rest
+ * of HabitManager.
+ */
+public class DueIndex {
+    public static final int NO_REMINDER = -1;
+
+    /** Where a habit was filed, so it can be unfiled after its fields changed */
+    private static final class Entry {
+        final int minute;
+        final int weekdayMask;        // bit (dayOfWeek - 1)
+        boolean dueToday;
+
+        Entry(int minute, int weekdayMask) {
+            this.minute = minute;
+            this.weekdayMask = weekdayMask;
+        }
+    }
+
+    private final List<TreeMap<Integer, Set<Habit>>> byWeekday = new ArrayList<>(7);   // index dayOfWeek - 1
+    private final TreeMap<Integer, Set<Habit>> dueToday = new TreeMap<>();
+    private final Map<Habit, Entry> entries = new IdentityHashMap<>();
+    private LocalDate day;
+
+    public DueIndex() {
+        for (int i = 0; i < 7; i++) byWeekday.add(new TreeMap<>());
+    }
+
+    /** Replaces the contents with habits */
+    public void rebuild(Collection<Habit> habits) {
+        for (TreeMap<Integer, Set<Habit>> m : byWeekday) m.clear();
+        dueToday.clear();
+        entries.clear();
+        day = null;
+        for (Habit h : habits) update(h);
+    }
+
+    /** Adds h, or refiles it after its reminder, schedule or completions changed */
+    public void update(Habit h) {
+        remove(h);
+        Entry e = new Entry(keyOf(h), weekdayMask(h.getSchedule()));
+        entries.put(h, e);
+        for (int d = 0; d < 7; d++) {
+            if ((e.weekdayMask & (1 << d)) != 0) file(byWeekday.get(d), e.minute, h);
+        }
+        if (day != null && isDue(h, day)) {
+            file(dueToday, e.minute, h);
+            e.dueToday = true;
+        }
+    }
+
+    public void remove(Habit h) {
+        Entry e = entries.remove(h);
+        if (e == null) return;
+        for (int d = 0; d < 7; d++) {
+            if ((e.weekdayMask & (1 << d)) != 0) unfile(byWeekday.get(d), e.minute, h);
+        }
+        if (e.dueToday) unfile(dueToday, e.minute, h);
+    }
+
+    /** Habits due on today and not yet done, by reminder time (those without one last) */
+    public List<Habit> dueOn(LocalDate today) {
+        roll(today);
+        List<Habit> out = new ArrayList<>();
+        for (Set<Habit> s : dueToday.tailMap(0, true).values()) out.addAll(s);
+        Set<Habit> anytime = dueToday.get(NO_REMINDER);
+        if (anytime != null) out.addAll(anytime);
+        return out;
+    }
+
+    /** Habits due on today, not yet done, with a reminder in [fromMinute, toMinute) */
+    public List<Habit> dueBetween(LocalDate today, int fromMinute, int toMinute) {
+        roll(today);
+        List<Habit> out = new ArrayList<>();
+        int from = Math.max(0, fromMinute), to = Math.min(1440, toMinute);
+        if (from >= to) return out;
+        for (Set<Habit> s : dueToday.subMap(from, true, to, false).values()) out.addAll(s);
+        return out;
+    }
+
+    /** Habits scheduled on a weekday with a reminder in [fromMinute, toMinute), regardless of completion */
+    public List<Habit> scheduledBetween(DayOfWeek weekday, int fromMinute, int toMinute) {
+        List<Habit> out = new ArrayList<>();
+        if (fromMinute >= toMinute) return out;
+        for (Set<Habit> s : byWeekday.get(weekday.getValue() - 1).subMap(fromMinute, true, toMinute, false).values()) {
+            out.addAll(s);
+        }
+        return out;
+    }
+
+    public int size() { return entries.size(); }
+
+    /** Whether h still counts as due on day */
+    public static boolean isDue(Habit h, LocalDate day) {
+        HabitSchedule s = h.getSchedule();
+        if (!s.isScheduledOn(day) || h.isDoneOn(day)) return false;
+        return !s.isWeekly() || h.getPeriodCount(day) < s.getTarget();
+    }
+
+    // ================= INTERNALS =================
+
+    /** Rebuilds the day level from that weekday's habits when the date has changed */
+    private void roll(LocalDate today) {
+        if (today.equals(day)) return;
+        day = today;
+        dueToday.clear();
+        for (Entry e : entries.values()) e.dueToday = false;
+        for (Set<Habit> s : byWeekday.get(today.getDayOfWeek().getValue() - 1).values()) {
+            for (Habit h : s) {
+                if (!isDue(h, today)) continue;
+                Entry e = entries.get(h);
+                file(dueToday, e.minute, h);
+                e.dueToday = true;
+            }
+        }
+    }
+
+    private static int keyOf(Habit h) {
+        int m = h.getReminderMinute();
+        return m < 0 ? NO_REMINDER : m;
+    }
+
+    private static int weekdayMask(HabitSchedule s) {
+        if (s.getKind() == Frequency.WEEKDAYS) return s.getArgument();
+        return 0x7F;                  // daily and weekly kinds can be done any day
+    }
+
+    private static void file(TreeMap<Integer, Set<Habit>> m, int minute, Habit h) {
+        m.computeIfAbsent(minute, k -> new LinkedHashSet<>()).add(h);   // Habit uses identity equality
+    }
+
+    private static void unfile(TreeMap<Integer, Set<Habit>> m, int minute, Habit h) {
+        Set<Habit> s = m.get(minute);
+        if (s == null) return;
+        s.remove(h);
+        if (s.isEmpty()) m.remove(minute);
+    }
+}
@@ -19,7 +19,8 @@ public class EditHabitDialog extends JDialog {
         add(nameF);
 
         add(new JLabel("Frequency:"));
-        JComboBox<String> freqC = new JComboBox<>(new String[]{"Daily", "Weekly"});
+        JComboBox<String> freqC = new JComboBox<>(new String[]{"Daily", "Weekly", "3x/week", "Mon/Wed/Fri"});
+        freqC.setEditable(true);
         freqC.setSelectedItem(habit.getFrequency());
         add(freqC);
 
@@ -42,7 +43,7 @@ public class EditHabitDialog extends JDialog {
         // Action handlers
         saveBtn.addActionListener(e -> {
             String nm = nameF.getText().trim();
-            String freq = (String) freqC.getSelectedItem();
+            String freq = String.valueOf(freqC.getSelectedItem()).trim();
             int total = (Integer) daysS.getValue();
             String time = timeF.getText().trim();
 
@@ -50,13 +51,13 @@ public class EditHabitDialog extends JDialog {
                 JOptionPane.showMessageDialog(this, "Habit name cannot be empty.");
                 return;
             }
+            if (!HabitSchedule.isValid(freq)) {
+                JOptionPane.showMessageDialog(this, "Frequency must be Daily, Weekly, Nx/week or days like Mon/Wed/Fri.");
+                return;
+            }
+            freq = HabitSchedule.parse(freq).getLabel();
 
-            habit.setName(nm);
-            habit.setFrequency(freq);
-            habit.setTotalDays(total);
-            habit.setReminderTime(time);
-
-            manager.updateHabit(index, habit);
+            manager.editHabit(index, nm, freq, total, time);
             JOptionPane.showMessageDialog(this, "Habit updated successfully!");
             dispose();
         });
@@ -0,0 +1,110 @@
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+
+/**
+ * Detects stalls of the Swing event dispatch thread.
+ *
+ * Installed as the top EventQueue, it notes when the EDT takes an event and
+ * when it comes back for the next one; time spent waiting for events (also
+ * inside a modal dialog's nested loop) does not count. A daemon thread polls
+ * that timestamp and, once the EDT has been busy longer than the threshold,
+ * captures the EDT's stack while it is still blocked and prints it. When the
+ * EDT recovers, the whole stall is recorded as a HabitPalEvents.EdtStall JFR
+ * event with its duration and that stack.
+ *
+ * Off unless started with -Dhabitpal.edtStallMillis=N; when off nothing is
+ * installed, so it costs nothing.
+ */
+public class EdtWatchdog extends EventQueue implements Runnable {
+    private static final int MAX_FRAMES = 40;
+
+    private final long thresholdNanos;
+    private final long pollMillis;
+
+    private volatile Thread edt;
+    private volatile AWTEvent current;
+    private volatile long busySince;        // nanoTime the EDT took its current event, 0 while waiting
+    private volatile long stallOf;          // busySince of the stretch the stack below belongs to
+    private volatile String stallStack;
+
+    private EdtWatchdog(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+        this.pollMillis = Math.max(10, thresholdMillis / 4);
+    }
+
+    /** Installs the watchdog if -Dhabitpal.edtStallMillis is set; returns null otherwise */
+    public static EdtWatchdog installFromProperty() {
+        long ms = Long.getLong("habitpal.edtStallMillis", 0);
+        if (ms <= 0) return null;
+        EdtWatchdog w = new EdtWatchdog(ms);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(w);
+        Thread t = new Thread(w, "HabitPal-edt-watchdog");
+        t.setDaemon(true);
+        t.start();
+        return w;
+    }
+
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException {
+        finishStretch();
+        AWTEvent e = super.getNextEvent();
+        edt = Thread.currentThread();
+        current = e;
+        busySince = System.nanoTime();
+        return e;
+    }
+
+    /** Called on the EDT when it goes back for an event; records the stall if the stretch was one */
+    private void finishStretch() {
+        long since = busySince;
+        busySince = 0;
+        if (since == 0 || stallOf != since) return;
+        long blockedMillis = (System.nanoTime() - since) / 1_000_000L;
+        System.err.println("EDT stall: blocked " + blockedMillis + " ms handling " + describe(current));
+
+        HabitPalEvents.EdtStall ev = new HabitPalEvents.EdtStall();
+        if (ev.shouldCommit()) {
+            ev.blockedMillis = blockedMillis;
+            ev.awtEvent = describe(current);
+            ev.stack = stallStack;
+            ev.commit();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                Thread.sleep(pollMillis);
+                long since = busySince;
+                Thread t = edt;
+                if (since == 0 || since == stallOf || t == null) continue;
+                if (System.nanoTime() - since < thresholdNanos) continue;
+
+                String stack = formatStack(t.getStackTrace());
+                if (busySince != since) continue;           // finished while we sampled
+                stallStack = stack;
+                stallOf = since;
+                System.err.println("EDT blocked for over " + thresholdNanos / 1_000_000L + " ms handling "
+                        + describe(current) + ":\n" + stack);
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private static String describe(AWTEvent e) {
+        if (e == null) return "?";
+        Object src = e.getSource();
+        return e.getClass().getSimpleName() + (src != null ? " from " + src.getClass().getSimpleName() : "");
+    }
+
+    private static String formatStack(StackTraceElement[] frames) {
+        StringBuilder sb = new StringBuilder();
+        int n = Math.min(frames.length, MAX_FRAMES);
+        for (int i = 0; i < n; i++) sb.append("\tat ").append(frames[i]).append('\n');
+        if (frames.length > n) sb.append("\t... ").append(frames.length - n).append(" more\n");
+        return sb.toString();
+    }
+}
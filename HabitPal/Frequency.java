@@ -0,0 +1,20 @@
+/**
+ * How often a habit repeats. DAILY and WEEKLY labels are what the habit file
+ * and the GUI combo boxes use ("Daily" / "Weekly"); the other kinds carry an
+ * argument and are written by {@link HabitSchedule} ("3x/week", "Mon/Wed/Fri").
+ */
+public enum Frequency {
+    DAILY("Daily"),
+    WEEKLY("Weekly"),
+    TIMES_PER_WEEK("Times per week"),
+    WEEKDAYS("Specific weekdays");
+
+    private final String label;
+
+    Frequency(String label) { this.label = label; }
+
+    public String getLabel() { return label; }
+
+    @Override
+    public String toString() { return label; }
+}
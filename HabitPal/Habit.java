@@ -1,24 +1,40 @@
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 /**
  * Habit model with persistent list of completed dates.
  *
  * File format (CSV):
- * name,frequency,totalDays,completedDays,reminderTime,streakCount,highestBadge,lastCompletedDate,completedDates
+ * name,frequency,totalDays,completedDays,reminderTime,streakCount,highestBadge,lastCompletedDate,completedDates[,archivedBefore,archivedDays,archivedCredited,archivedStreak,archivedRunOpen]
  *
- * completedDates is a semicolon-separated list of ISO dates (yyyy-MM-dd).
+ * completedDates is written as run-length encoded ranges of consecutive days:
+ * "~start+len;gap+len;..." where start is an epoch day, gap is the number of
+ * days between the end of the previous run and the start of the next, and len
+ * is the run length. A habit kept every day for years collapses to one token.
+ * The legacy form (semicolon-separated ISO dates, yyyy-MM-dd) is still read.
  * Older files without the last fields will still load.
+ *
+ * Dates before archivedBefore live in cold storage (HistoryArchive) instead of
+ * completedDates; the trailing fields keep their count, the completions they
+ * credit and the latest archived streak (1 in archivedRunOpen if it reaches the
+ * boundary), so progress and streak need no access to the archive.
+ *
+ * Streak and progress follow the habit's frequency (see HabitSchedule):
+ * completions are bucketed into days or weeks by a PeriodTracker, so a
+ * "Weekly" habit done once a week keeps its streak.
  */
 public class Habit implements Serializable {
     private String name;
-    private String frequency;          // Daily / Weekly
+    private String frequency;          // Daily / Weekly / 3x/week / Mon/Wed/Fri
     private int totalDays;
     private int completedDays;
     private String reminderTime;       // "HH:mm" or empty
+    private int reminderMinute;        // reminderTime as minute of day, -1 if unset/invalid
 
     // tracking fields
     private int streakCount;
@@ -31,16 +47,28 @@ public class Habit implements Serializable {
     // NEW: highest awarded badge for this habit (0, 25, 50, 75, 100)
     private int highestBadge = 0;
 
+    // per-period counters behind streak and progress
+    private PeriodTracker tracker;
+
+    // completions moved to cold storage (all before archivedBefore, a Monday)
+    private LocalDate archivedBefore;
+    private int archivedDays = 0;
+    private int archivedCredited = 0;
+    private int archivedStreak = 0;
+    private boolean archivedRunOpen = false;
+
     public Habit(String name, String frequency, int totalDays, String reminderTime) {
         this.name = name;
         this.frequency = frequency;
         this.totalDays = totalDays;
         this.completedDays = 0;
         this.reminderTime = (reminderTime == null) ? "" : reminderTime;
+        this.reminderMinute = parseReminderMinute(this.reminderTime);
         this.streakCount = 0;
         this.lastCompletedDate = null;
         this.completedDates = new LinkedHashSet<>();
         this.highestBadge = 0;
+        this.tracker = new PeriodTracker(HabitSchedule.parse(frequency));
     }
 
     // getters
@@ -49,11 +77,31 @@ public class Habit implements Serializable {
     public int getTotalDays() { return totalDays; }
     public int getCompletedDays() { return completedDays; }
     public String getReminderTime() { return reminderTime; }
+    public int getReminderMinute() { return reminderMinute; }
     public int getStreakCount() { return streakCount; }
     public LocalDate getLastCompletedDate() { return lastCompletedDate; }
     public int getHighestBadge() { return highestBadge; }
+    public HabitSchedule getSchedule() { return tracker.getSchedule(); }
+    public LocalDate getArchivedBefore() { return archivedBefore; }
+
+    /** Completions that count towards the goal (at most the target per period) */
+    public int getCreditedCompletions() {
+        if (completedDates.isEmpty() && archivedBefore == null) return completedDays;
+        return tracker.getCredited() + archivedCredited;
+    }
+
+    /** Completions needed to reach 100%: periods in totalDays times the per-period target */
+    public int getTargetCompletions() {
+        HabitSchedule s = tracker.getSchedule();
+        return s.periodsIn(totalDays) * s.getTarget();
+    }
+
+    /** Completions counted so far in the period (day or week) containing day */
+    public int getPeriodCount(LocalDate day) {
+        return tracker.countFor(day);
+    }
 
-    // expose a read-only copy of completedDates
+    // expose a read-only copy of completedDates (recent ones only, see getArchivedBefore)
     public Set<LocalDate> getCompletedDates() {
         return Collections.unmodifiableSet(completedDates);
     }
@@ -65,72 +113,165 @@ public class Habit implements Serializable {
 
     // setters
     public void setName(String n) { this.name = n; }
-    public void setFrequency(String f) { this.frequency = f; }
+    public void setFrequency(String f) {
+        this.frequency = f;
+        HabitSchedule s = HabitSchedule.parse(f);
+        if (!s.equals(tracker.getSchedule())) {
+            // archived counters still use the old schedule until HabitManager recounts them
+            tracker.rebuild(s, completedDates);
+            refreshStreak();
+        }
+    }
     public void setTotalDays(int t) { this.totalDays = t; }
-    public void setReminderTime(String rt) { this.reminderTime = rt; }
+    public void setReminderTime(String rt) {
+        this.reminderTime = (rt == null) ? "" : rt;
+        this.reminderMinute = parseReminderMinute(this.reminderTime);
+    }
     public void setHighestBadge(int val) { this.highestBadge = val; }
 
+    /** Copies every field of o into this habit (used when merging a reloaded record) */
+    void copyStateFrom(Habit o) {
+        this.name = o.name;
+        this.frequency = o.frequency;
+        this.totalDays = o.totalDays;
+        this.completedDays = o.completedDays;
+        this.reminderTime = o.reminderTime;
+        this.reminderMinute = o.reminderMinute;
+        this.streakCount = o.streakCount;
+        this.lastCompletedDate = o.lastCompletedDate;
+        this.completedDates = new LinkedHashSet<>(o.completedDates);
+        this.highestBadge = o.highestBadge;
+        this.archivedBefore = o.archivedBefore;
+        this.archivedDays = o.archivedDays;
+        this.archivedCredited = o.archivedCredited;
+        this.archivedStreak = o.archivedStreak;
+        this.archivedRunOpen = o.archivedRunOpen;
+        this.tracker = new PeriodTracker(o.tracker.getSchedule());
+        this.tracker.setArchived(archivedBefore, archivedStreak, archivedRunOpen);
+        this.tracker.rebuild(o.tracker.getSchedule(), completedDates);
+    }
+
     /**
      * Called when the user marks this habit complete.
      * Adds today's date to completedDates, updates completedDays,
-     * recomputes streakCount and lastCompletedDate.
+     * the period counters, streakCount and lastCompletedDate.
      */
     public void markComplete() {
-        LocalDate today = LocalDate.now();
+        setDoneOn(LocalDate.now(), true);
+    }
 
-        // if today's date was not already recorded, add it and increment completedDays
-        if (!completedDates.contains(today)) {
-            completedDates.add(today);
-            completedDays = completedDates.size();
+    /** Adds or removes one completion date and refreshes the derived counters */
+    void setDoneOn(LocalDate day, boolean done) {
+        if (done) {
+            if (!completedDates.add(day)) return;
+            tracker.add(day);
+            if (lastCompletedDate == null || day.isAfter(lastCompletedDate)) lastCompletedDate = day;
+        } else {
+            if (!completedDates.remove(day)) return;
+            tracker.remove(day);
+            if (day.equals(lastCompletedDate)) {
+                lastCompletedDate = completedDates.stream().max(LocalDate::compareTo).orElse(null);
+            }
         }
+        completedDays = archivedDays + completedDates.size();
+        refreshStreak();
+    }
+
+    /**
+     * Drops completions before cutoff (a Monday, so no day or week straddles it)
+     * from completedDates and folds them into the archived counters; the caller
+     * has already written them to cold storage. Normally they are all newer than
+     * the previous boundary and are added on top of the existing counters; a
+     * late one (e.g. synced from another device) forces a recount, for which
+     * archived supplies every date in cold storage.
+     */
+    void archiveBefore(LocalDate cutoff, Supplier<Collection<LocalDate>> archived) {
+        List<LocalDate> moved = new ArrayList<>();
+        for (LocalDate d : completedDates) if (d.isBefore(cutoff)) moved.add(d);
+        if (moved.isEmpty()) return;
+        Collections.sort(moved);
+        completedDates.removeAll(moved);
 
-        // update lastCompletedDate to the most recent completed date
-        // (completedDates is not necessarily ordered by date, so compute max)
-        if (!completedDates.isEmpty()) {
-            lastCompletedDate = completedDates.stream().max(LocalDate::compareTo).orElse(today);
+        HabitSchedule s = tracker.getSchedule();
+        if (archivedBefore == null || !moved.get(0).isBefore(archivedBefore)) {
+            long[] c = PeriodTracker.summarize(s, moved);
+            archivedDays += moved.size();
+            archivedCredited += (int) c[0];
+            if (c[2] != PeriodTracker.NONE) {
+                boolean joinsOldRun = archivedBefore != null && archivedRunOpen
+                        && c[2] - c[1] + 1 == s.periodOf(archivedBefore);
+                archivedStreak = (int) c[1] + (joinsOldRun ? archivedStreak : 0);
+                archivedRunOpen = c[2] == s.periodOf(cutoff) - 1;
+            } else {
+                archivedRunOpen = false;     // the moved periods lie between the old run and the boundary
+            }
+            archivedBefore = cutoff;
         } else {
-            lastCompletedDate = null;
+            Set<LocalDate> all = new TreeSet<>(archived.get());
+            all.addAll(moved);
+            archivedBefore = cutoff;
+            recount(all);
         }
+        tracker.setArchived(archivedBefore, archivedStreak, archivedRunOpen);
+        tracker.rebuild(s, completedDates);
+        completedDays = archivedDays + completedDates.size();
+        refreshStreak();
+    }
 
-        // recompute streak: count consecutive days ending at lastCompletedDate
-        recomputeStreak();
+    /** Recomputes the archived counters from every archived date (after a frequency change) */
+    void recountArchived(Collection<LocalDate> archived) {
+        if (archivedBefore == null) return;
+        recount(archived);
+        tracker.setArchived(archivedBefore, archivedStreak, archivedRunOpen);
+        tracker.rebuild(tracker.getSchedule(), completedDates);
+        completedDays = archivedDays + completedDates.size();
+        refreshStreak();
     }
 
-    /** Recomputes streakCount from completedDates and lastCompletedDate */
-    private void recomputeStreak() {
-        streakCount = 0;
-        if (lastCompletedDate == null) return;
+    private void recount(Collection<LocalDate> archived) {
+        HabitSchedule s = tracker.getSchedule();
+        long[] c = PeriodTracker.summarize(s, archived);
+        archivedDays = archived.size();
+        archivedCredited = (int) c[0];
+        archivedStreak = (int) c[1];
+        archivedRunOpen = c[2] != PeriodTracker.NONE && c[2] == s.periodOf(archivedBefore) - 1;
+    }
 
-        LocalDate cursor = lastCompletedDate;
-        while (completedDates.contains(cursor)) {
-            streakCount++;
-            cursor = cursor.minusDays(1);
-        }
+    /** Takes streakCount from the period counters (legacy records without dates keep the stored value) */
+    private void refreshStreak() {
+        if (!completedDates.isEmpty() || archivedBefore != null) streakCount = tracker.getStreak();
+        else if (lastCompletedDate == null) streakCount = 0;
     }
 
     /** Calculates completion percentage */
     public double getProgress() {
-        if (totalDays == 0) return 0;
-        return (completedDays * 100.0) / totalDays;
+        int target = getTargetCompletions();
+        if (target == 0) return 0;
+        return (getCreditedCompletions() * 100.0) / target;
     }
 
     @Override
     public String toString() {
-        return name + " (" + frequency + ") - " + completedDays + "/" + totalDays +
+        return name + " (" + frequency + ") - " + getCreditedCompletions() + "/" + getTargetCompletions() +
                 " done (" + String.format("%.1f", getProgress()) + "%)  [" + reminderTime + "]";
     }
 
     /** Converts to a line for saving */
     public String toFileString() {
-        // completedDates serialized as semicolon-separated ISO dates
-        String dates = completedDates.stream()
-                .map(LocalDate::toString)
-                .collect(Collectors.joining(";"));
+        // completedDates serialized as run-length encoded day ranges
+        String dates = encodeCompletionRuns(completedDates);
         // New format: name,freq,total,completed,reminder,streak,highestBadge,lastCompletedDate,dates
         return name + "," + frequency + "," + totalDays + "," + completedDays + "," +
                reminderTime + "," + streakCount + "," + highestBadge + "," +
                (lastCompletedDate != null ? lastCompletedDate.toString() : "") + "," +
-               dates;
+               dates + archiveFields();
+    }
+
+    /** The trailing archive fields including their leading comma, or "" if nothing is archived */
+    String archiveFields() {
+        if (archivedBefore == null) return "";
+        return "," + archivedBefore + "," + archivedDays + "," + archivedCredited + "," + archivedStreak +
+               "," + (archivedRunOpen ? 1 : 0);
     }
 
     /** Reconstructs a Habit from a line; tolerant of older formats */
@@ -162,23 +303,37 @@ public class Habit implements Serializable {
                 try { h.lastCompletedDate = LocalDate.parse(p[7]); } catch (Exception ex) { h.lastCompletedDate = null; }
             }
 
-            // parse completedDates if present (last field)
-            if (p.length > 8 && !p[8].isEmpty()) {
-                String dates = p[8];
-                String[] tokens = dates.split(";");
-                for (String t : tokens) {
-                    try {
-                        LocalDate d = LocalDate.parse(t);
-                        h.completedDates.add(d);
-                    } catch (Exception ignore) {}
+            // archive fields, present once old dates have moved to cold storage
+            if (p.length > 13 && !p[9].isEmpty()) {
+                try {
+                    h.archivedBefore = LocalDate.parse(p[9]);
+                    h.archivedDays = Integer.parseInt(p[10]);
+                    h.archivedCredited = Integer.parseInt(p[11]);
+                    h.archivedStreak = Integer.parseInt(p[12]);
+                    h.archivedRunOpen = p[13].equals("1");
+                    h.tracker.setArchived(h.archivedBefore, h.archivedStreak, h.archivedRunOpen);
+                } catch (Exception ex) {
+                    h.archivedBefore = null;
+                    h.archivedDays = h.archivedCredited = h.archivedStreak = 0;
+                    h.archivedRunOpen = false;
                 }
-                // ensure completedDays matches set size
-                h.completedDays = h.completedDates.size();
-                // recompute lastCompletedDate and streak in case they were inconsistent
+            }
+
+            // parse completedDates if present
+            if (p.length > 8 && !p[8].isEmpty()) {
+                decodeCompletionRuns(p[8], h.completedDates);
+                // ensure completedDays matches set size plus what was archived
+                h.completedDays = h.archivedDays + h.completedDates.size();
+                // recompute lastCompletedDate, period counters and streak in case they were inconsistent
                 if (!h.completedDates.isEmpty()) {
                     h.lastCompletedDate = h.completedDates.stream().max(LocalDate::compareTo).orElse(h.lastCompletedDate);
-                    h.recomputeStreak();
+                    h.tracker.rebuild(h.tracker.getSchedule(), h.completedDates);
+                    h.refreshStreak();
                 }
+            } else if (h.archivedBefore != null) {
+                h.completedDays = h.archivedDays;
+                h.tracker.rebuild(h.tracker.getSchedule(), h.completedDates);
+                h.refreshStreak();
             } else {
                 // older formats: try to ensure consistency
                 if (h.lastCompletedDate != null && h.completedDays == 0) {
@@ -191,4 +346,82 @@ public class Habit implements Serializable {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    // ================= REMINDER TIME =================
+
+    /** Shared "H:mm" formatter; DateTimeFormatter is immutable and thread-safe */
+    static final DateTimeFormatter REMINDER_FORMAT = DateTimeFormatter.ofPattern("H:mm");
+
+    /** Parses "H:mm" into minute of day, or -1 if empty or invalid */
+    static int parseReminderMinute(String hhmm) {
+        if (hhmm == null || hhmm.trim().isEmpty()) return -1;
+        try {
+            LocalTime t = LocalTime.parse(hhmm.trim(), REMINDER_FORMAT);
+            return t.getHour() * 60 + t.getMinute();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    // ================= COMPLETION ENCODING =================
+
+    /** Prefix that marks the run-length encoded completion field */
+    static final char RUNS_PREFIX = '~';
+
+    /**
+     * Encodes dates as "~start+len;gap+len;...". Dates are sorted first, so the
+     * insertion order of the set does not matter. Empty input gives "".
+     */
+    static String encodeCompletionRuns(Collection<LocalDate> dates) {
+        if (dates.isEmpty()) return "";
+        long[] days = new long[dates.size()];
+        int n = 0;
+        for (LocalDate d : dates) days[n++] = d.toEpochDay();
+        Arrays.sort(days);
+
+        StringBuilder sb = new StringBuilder(16 + n / 4);
+        sb.append(RUNS_PREFIX);
+        long runStart = days[0];
+        long prevEnd = 0;          // exclusive end of the previously written run
+        boolean first = true;
+        for (int i = 1; i <= n; i++) {
+            if (i < n && days[i] == days[i - 1] + 1) continue;
+            long runEnd = days[i - 1] + 1;
+            if (!first) sb.append(';');
+            sb.append(first ? runStart : runStart - prevEnd).append('+').append(runEnd - runStart);
+            first = false;
+            prevEnd = runEnd;
+            if (i < n) runStart = days[i];
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes a completion field into {@code out}. Accepts both the run-length
+     * form and the legacy list of ISO dates; malformed tokens are skipped.
+     */
+    static void decodeCompletionRuns(String field, Set<LocalDate> out) {
+        if (field == null || field.isEmpty()) return;
+        if (field.charAt(0) != RUNS_PREFIX) {
+            for (String t : field.split(";")) {
+                try { out.add(LocalDate.parse(t)); } catch (Exception ignore) {}
+            }
+            return;
+        }
+
+        long cursor = 0;
+        boolean first = true;
+        for (String t : field.substring(1).split(";")) {
+            int plus = t.indexOf('+');
+            if (plus <= 0) continue;
+            try {
+                long offset = Long.parseLong(t.substring(0, plus));
+                long len = Long.parseLong(t.substring(plus + 1));
+                long start = first ? offset : cursor + offset;
+                for (long d = start; d < start + len; d++) out.add(LocalDate.ofEpochDay(d));
+                cursor = start + len;
+                first = false;
+            } catch (Exception ignore) {}
+        }
+    }
+}
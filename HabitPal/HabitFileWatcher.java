@@ -0,0 +1,89 @@
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * Watches one habit file for changes made by other processes (a sync tool,
+ * the CLI, a second window) and runs a callback on the EDT after each burst
+ * of modifications. The callback is expected to diff against what it last
+ * saw, so events caused by our own saves are harmless.
+ */
+public class HabitFileWatcher implements Runnable {
+    /** Quiet period that groups the several events a single rewrite produces */
+    private static final long DEBOUNCE_MILLIS = 250;
+
+    private final WatchService ws;
+    private final Path dir;
+    private final Path fileName;
+    private final Runnable onChange;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private HabitFileWatcher(WatchService ws, Path dir, Path fileName, Runnable onChange) {
+        this.ws = ws;
+        this.dir = dir;
+        this.fileName = fileName;
+        this.onChange = onChange;
+        this.thread = new Thread(this, "HabitPal-file-watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching file; returns null (and logs) if the platform cannot
+     * watch its directory, in which case HabitPal simply works without reload.
+     */
+    public static HabitFileWatcher start(File file, Runnable onChange) {
+        Path abs = file.toPath().toAbsolutePath();
+        Path dir = abs.getParent();
+        try {
+            WatchService ws = dir.getFileSystem().newWatchService();
+            dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            HabitFileWatcher w = new HabitFileWatcher(ws, dir, abs.getFileName(), onChange);
+            w.thread.start();
+            return w;
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Live reload disabled for " + abs + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                WatchKey key = ws.take();
+                boolean relevant = drain(key);
+
+                // wait until the writer has gone quiet before reading the file
+                while (relevant) {
+                    WatchKey more = ws.poll(DEBOUNCE_MILLIS, java.util.concurrent.TimeUnit.MILLISECONDS);
+                    if (more == null) break;
+                    drain(more);
+                }
+                if (relevant && running) SwingUtilities.invokeLater(onChange);
+                if (!key.isValid()) break;
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /** Consumes a key's events; true if any concerned the watched file */
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> ev : key.pollEvents()) {
+            if (ev.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(ev.context())) relevant = true;
+        }
+        key.reset();
+        return relevant;
+    }
+
+    public Path getWatchedFile() { return dir.resolve(fileName); }
+
+    public void close() {
+        running = false;
+        try { ws.close(); } catch (IOException ignored) {}
+        thread.interrupt();
+    }
+}
@@ -1,8 +1,8 @@
 import javax.swing.*;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.*;
 
 public class HabitManager {
@@ -10,44 +10,144 @@ public class HabitManager {
     private final String FILE_NAME;
     private final String USER_FILE;
     private final String BADGE_FILE;
+    private final String REMINDER_FILE;
 
-    private Map<String, java.util.Timer> timers = new HashMap<>();
     private Map<String, Integer> badgeCounts = new HashMap<>();
 
+    // reminders: one shared timer thread, one task per habit (keyed by the Habit, as names need not be unique)
+    private static final long HEARTBEAT_MILLIS = 60_000;
+    private final java.util.Timer reminderTimer = new java.util.Timer("HabitPal-reminders", true);
+    private Map<Habit, TimerTask> reminderTasks = new IdentityHashMap<>();
+    private final Set<Habit> pendingReminders = new LinkedHashSet<>();
+    private final Map<Habit, LocalDate> remindedOn = new IdentityHashMap<>();
+    private boolean digestShowing = false;
+    private int reminderWindowMinutes = Integer.getInteger("habitpal.reminderWindowMinutes", 5);
+    private volatile long lastReminderCheck;
+
     private String username;
 
+    // live reload: last line seen on disk per habit name, and who to tell about changes
+    private Map<String, String> lastKnownLines = new HashMap<>();
+    private final List<HabitsListener> listeners = new ArrayList<>();
+    private HabitFileWatcher watcher;
+
+    // sync: change feed of this replica, and the name each habit was last recorded under
+    private final File dataDir;
+    private final ChangeFeed feed;
+    private final Map<Habit, String> recordedNames = new IdentityHashMap<>();
+
+    private final MotivationQuotes quotes;
+    private final UndoHistory history;
+
+    // cold storage: completions older than the hot horizon live in per-year segments
+    private final HistoryArchive archive;
+    private final int hotHistoryDays = Integer.getInteger("habitpal.hotHistoryDays", 90);
+
+    // habits by reminder minute and due weekday; kept current by every change below
+    private final DueIndex dueIndex = new DueIndex();
+
     public HabitManager(String username) {
+        this(username, new File("."));
+    }
+
+    /** Uses dataDir for all of this user's files (two instances can run side by side) */
+    public HabitManager(String username, File dataDir) {
         this.username = username;
-        this.FILE_NAME = "habits_" + username + ".txt";
-        this.USER_FILE = "user_" + username + ".txt";
-        this.BADGE_FILE = "badges_" + username + ".txt";
+        this.dataDir = dataDir;
+        this.FILE_NAME = new File(dataDir, "habits_" + username + ".txt").getPath();
+        this.USER_FILE = new File(dataDir, "user_" + username + ".txt").getPath();
+        this.BADGE_FILE = new File(dataDir, "badges_" + username + ".txt").getPath();
+        this.REMINDER_FILE = new File(dataDir, "reminders_" + username + ".txt").getPath();
+        this.quotes = new MotivationQuotes(new File(dataDir, "quotes_" + username + ".txt"));
+        this.history = new UndoHistory(new File(dataDir, "undo_" + username + ".txt"));
+        this.archive = new HistoryArchive(new File(dataDir, "history_" + username));
 
         loadHabits();
+        if (archiveOldHistory()) saveHabits();
         loadBadges();
+
+        feed = new ChangeFeed(dataDir, username);
+        feed.compact(archiveCutoff());
         scheduleAllReminders();
+
+        // deliver reminders that came due while HabitPal was not running
+        long now = System.currentTimeMillis();
+        catchUpMissedReminders(loadReminderState(), now);
+        lastReminderCheck = now;
+        saveReminderState();
+        startReminderHeartbeat();
+        if (!pendingReminders.isEmpty()) {
+            javax.swing.SwingUtilities.invokeLater(this::showPendingReminders);
+        }
+
+        watcher = HabitFileWatcher.start(new File(FILE_NAME), this::reloadChangedHabits);
     }
 
     // ================= CRUD =================
     public void addHabit(Habit h) {
-        habits.add(h);
+        history.record(new UndoHistory.Edit(UndoHistory.ADD, String.valueOf(habits.size()), h.toFileString()));
+        insertHabit(habits.size(), h);
         saveHabits();
-        scheduleReminder(h);
     }
 
     public List<Habit> getHabits() { return habits; }
 
     public void deleteHabit(int idx) {
         if (idx >= 0 && idx < habits.size()) {
-            Habit h = habits.remove(idx);
-            java.util.Timer t = timers.remove(h.getName());
-            if (t != null) t.cancel();
+            Habit h = habits.get(idx);
+            String line = h.toFileString();
+            String archived = removeHabit(h);
+            history.record(new UndoHistory.Edit(UndoHistory.DELETE, String.valueOf(idx), line, archived));
             saveHabits();
         }
     }
 
+    /**
+     * Changes a habit's settings and records the old values for undo.
+     * Use this rather than mutating the Habit and calling updateHabit.
+     */
+    public void editHabit(int idx, String name, String frequency, int totalDays, String reminderTime) {
+        if (idx < 0 || idx >= habits.size()) return;
+        Habit h = habits.get(idx);
+        history.record(new UndoHistory.Edit(UndoHistory.EDIT, String.valueOf(idx),
+                h.getName(), h.getFrequency(), String.valueOf(h.getTotalDays()), h.getReminderTime(),
+                name, frequency, String.valueOf(totalDays), reminderTime));
+        applySettings(h, name, frequency, totalDays, reminderTime);
+        updateHabit(idx, h);
+    }
+
+    /** Sets h's settings, keeping its archived history under the new name and schedule */
+    private void applySettings(Habit h, String name, String frequency, int totalDays, String reminderTime) {
+        String oldName = h.getName();
+        HabitSchedule oldSchedule = h.getSchedule();
+        h.setName(name);
+        h.setFrequency(frequency);
+        h.setTotalDays(totalDays);
+        h.setReminderTime(reminderTime);
+        if (h.getArchivedBefore() == null) return;
+        if (!oldName.equals(name)) {
+            try {
+                archive.rename(oldName, name);
+            } catch (IOException e) {
+                System.err.println("Error renaming archived history: " + e.getMessage());
+            }
+        }
+        if (!oldSchedule.equals(h.getSchedule())) h.recountArchived(archive.allCompletions(name));
+    }
+
     public void updateHabit(int idx, Habit h) {
         if (idx >= 0 && idx < habits.size()) {
             habits.set(idx, h);
+            String oldName = recordedNames.get(h);
+            if (oldName != null && !oldName.equals(h.getName())) {
+                // names identify habits across replicas, so a rename is delete + create
+                feed.recordDelete(oldName);
+                recordSnapshot(h);
+            } else {
+                feed.recordMeta(h);
+            }
+            recordedNames.put(h, h.getName());
+            dueIndex.update(h);
             saveHabits();
             scheduleAllReminders();
         }
@@ -61,49 +161,207 @@ public class HabitManager {
     }
 
     public void markHabitComplete(Habit h) {
+        // save before the dialogs, so the mark is on disk (and timed) without waiting on the user
+        HabitPalEvents.Mark ev = new HabitPalEvents.Mark();
+        ev.begin();
+        String badgeMsg = completeAndAward(h);
+        if (badgeMsg != null) saveBadges();
+        saveHabits();
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.habit = h.getName();
+            ev.streak = h.getStreakCount();
+            ev.badge = badgeMsg != null;
+            ev.commit();
+        }
+
+        if (badgeMsg != null) {
+            JOptionPane.showMessageDialog(null, badgeMsg,
+                "Badge Unlocked!", JOptionPane.INFORMATION_MESSAGE);
+        }
+
+        // Always show a motivational quote after marking done (so quotes never disappear)
+        JOptionPane.showMessageDialog(null,
+                "Marked '" + h.getName() + "' done!\n\n" + quotes.next(h.getName()),
+                "Habit Updated", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Marks h done for today and awards the next badge milestone, if any.
+     * Does not save or show anything; returns the badge message or null.
+     */
+    private String completeAndAward(Habit h) {
+        LocalDate today = LocalDate.now();
+        if (h.isDoneOn(today)) return null;
+        int oldBadge = h.getHighestBadge();
+        feed.recordDone(h.getName(), Collections.singletonList(today), true);
         h.markComplete();
+        dueIndex.update(h);
+        String msg = awardBadge(h);
+        history.record(new UndoHistory.Edit(UndoHistory.MARK, h.getName(),
+                String.valueOf(today.toEpochDay()), String.valueOf(oldBadge), String.valueOf(h.getHighestBadge())));
+        return msg;
+    }
+
+    /** Awards the next badge milestone reached by h, if any; returns its message or null */
+    private String awardBadge(Habit h) {
         double progress = h.getProgress();
 
         // 🏅 Award badges only once per habit milestone
         int lastBadge = h.getHighestBadge();
-        boolean awarded = false;
 
         if (progress >= 100.0 && lastBadge < 100) {
-            addBadge("Gold");
+            badgeCounts.merge("Gold", 1, Integer::sum);
             h.setHighestBadge(100);
-            awarded = true;
-            JOptionPane.showMessageDialog(null,
-                "🏆 Congratulations!\nYou’ve earned the GOLD Badge!\nYou’ve completed this habit goal 100%!",
-                "Badge Unlocked!", JOptionPane.INFORMATION_MESSAGE);
+            return "🏆 Congratulations!\nYou’ve earned the GOLD Badge!\nYou’ve completed this habit goal 100%!";
         } else if (progress >= 75.0 && lastBadge < 75) {
-            addBadge("Silver");
+            badgeCounts.merge("Silver", 1, Integer::sum);
             h.setHighestBadge(75);
-            awarded = true;
-            JOptionPane.showMessageDialog(null,
-                "🎖️ Great Job!\nYou’ve earned the SILVER Badge!\nYou’ve achieved 75% of your goal!",
-                "Badge Unlocked!", JOptionPane.INFORMATION_MESSAGE);
+            return "🎖️ Great Job!\nYou’ve earned the SILVER Badge!\nYou’ve achieved 75% of your goal!";
         } else if (progress >= 50.0 && lastBadge < 50) {
-            addBadge("Bronze");
+            badgeCounts.merge("Bronze", 1, Integer::sum);
             h.setHighestBadge(50);
-            awarded = true;
-            JOptionPane.showMessageDialog(null,
-                "🥉 Nice Work!\nYou’ve earned the BRONZE Badge!\nYou’re halfway through your habit goal!",
-                "Badge Unlocked!", JOptionPane.INFORMATION_MESSAGE);
+            return "🥉 Nice Work!\nYou’ve earned the BRONZE Badge!\nYou’re halfway through your habit goal!";
         } else if (progress >= 25.0 && lastBadge < 25) {
-            addBadge("Starter");
+            badgeCounts.merge("Starter", 1, Integer::sum);
             h.setHighestBadge(25);
-            awarded = true;
-            JOptionPane.showMessageDialog(null,
-                "💪 Keep Going!\nYou’ve earned the STARTER Badge!\nYou’ve crossed 25% of your goal!",
-                "Badge Unlocked!", JOptionPane.INFORMATION_MESSAGE);
+            return "💪 Keep Going!\nYou’ve earned the STARTER Badge!\nYou’ve crossed 25% of your goal!";
         }
+        return null;
+    }
 
-        // Always show a motivational quote after marking done (so quotes never disappear)
-        JOptionPane.showMessageDialog(null,
-                "Marked '" + h.getName() + "' done!\n\n" + MotivationQuotes.getRandomQuote(),
-                "Habit Updated", JOptionPane.INFORMATION_MESSAGE);
+    // ================= UNDO / REDO =================
+    public boolean canUndo() { return history.canUndo(); }
+    public boolean canRedo() { return history.canRedo(); }
+
+    /** Reverts the last change (or bulk change); returns false if there was nothing to undo */
+    public boolean undo() {
+        List<UndoHistory.Edit> unit = history.popUndo();
+        if (unit == null) return false;
+        for (int i = unit.size() - 1; i >= 0; i--) applyEdit(unit.get(i), false);
+        afterHistoryStep();
+        return true;
+    }
+
+    /** Re-applies the last undone change; returns false if there was nothing to redo */
+    public boolean redo() {
+        List<UndoHistory.Edit> unit = history.popRedo();
+        if (unit == null) return false;
+        for (UndoHistory.Edit e : unit) applyEdit(e, true);
+        afterHistoryStep();
+        return true;
+    }
+
+    /** Applies one edit forwards (redo) or backwards (undo) without recording history */
+    private void applyEdit(UndoHistory.Edit e, boolean forward) {
+        switch (e.type) {
+            case UndoHistory.ADD:
+            case UndoHistory.DELETE: {
+                boolean insert = e.type.equals(UndoHistory.ADD) == forward;
+                Habit line = Habit.fromFileString(e.arg(1));
+                if (line == null) return;
+                Habit existing = findByName(line.getName());
+                if (insert && existing == null) {
+                    restoreArchive(line.getName(), e.arg(2));
+                    insertHabit(Math.min(e.argInt(0), habits.size()), line);
+                } else if (!insert && existing != null) {
+                    removeHabit(existing);
+                }
+                break;
+            }
+            case UndoHistory.EDIT: {
+                int from = forward ? 1 : 5, to = forward ? 5 : 1;
+                Habit h = findByName(e.arg(from));
+                if (h == null) return;
+                applySettings(h, e.arg(to), e.arg(to + 1), e.argInt(to + 2), e.arg(to + 3));
+                updateHabit(habits.indexOf(h), h);
+                break;
+            }
+            case UndoHistory.MARK: {
+                Habit h = findByName(e.arg(0));
+                if (h == null) return;
+                LocalDate day = LocalDate.ofEpochDay(Long.parseLong(e.arg(1)));
+                int before = forward ? e.argInt(2) : e.argInt(3);
+                int after = forward ? e.argInt(3) : e.argInt(2);
+                if (!changeCompletion(h, day, forward)) return;      // leave badges and feed untouched
+                dueIndex.update(h);
+                feed.recordDone(h.getName(), Collections.singletonList(day), forward);
+                if (before != after) {
+                    String gained = badgeName(forward ? after : before);
+                    if (forward) badgeCounts.merge(gained, 1, Integer::sum);
+                    else badgeCounts.computeIfPresent(gained, (k, v) -> v > 1 ? v - 1 : null);
+                    h.setHighestBadge(after);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+    }
 
+    private void afterHistoryStep() {
         saveHabits();
+        saveBadges();
+        scheduleAllReminders();
+        for (HabitsListener l : new ArrayList<>(listeners)) l.habitsReloaded(new int[0], true);
+    }
+
+    private static String badgeName(int level) {
+        switch (level) {
+            case 100: return "Gold";
+            case 75: return "Silver";
+            case 50: return "Bronze";
+            default: return "Starter";
+        }
+    }
+
+    /** Adds h at idx and records it in the change feed; callers save */
+    private void insertHabit(int idx, Habit h) {
+        habits.add(idx, h);
+        recordSnapshot(h);
+        recordedNames.put(h, h.getName());
+        dueIndex.update(h);
+        scheduleReminder(h);
+    }
+
+    /** Removes h like {@link #dropHabit} and records the delete in the change feed; callers save */
+    private String removeHabit(Habit h) {
+        feed.recordDelete(h.getName());
+        return dropHabit(h);
+    }
+
+    /**
+     * Removes h and cancels its reminder. Its archived history is purged too, so
+     * a later habit that takes the name does not inherit it; the purged dates are
+     * returned run-encoded ("" if none) for the undo record. Callers save.
+     */
+    private String dropHabit(Habit h) {
+        habits.remove(h);
+        TimerTask t = reminderTasks.remove(h);
+        if (t != null) t.cancel();
+        remindedOn.remove(h);
+        recordedNames.remove(h);
+        dueIndex.remove(h);
+        if (h.getArchivedBefore() == null) return "";
+        Set<LocalDate> dates = archive.allCompletions(h.getName());
+        try {
+            archive.remove(h.getName(), dates);
+        } catch (IOException e) {
+            System.err.println("Error purging archived history of " + h.getName() + ": " + e.getMessage());
+        }
+        return Habit.encodeCompletionRuns(dates);
+    }
+
+    /** Puts history purged by dropHabit back into cold storage before the habit is re-inserted */
+    private void restoreArchive(String name, String runs) {
+        Set<LocalDate> dates = new TreeSet<>();
+        Habit.decodeCompletionRuns(runs, dates);
+        if (dates.isEmpty()) return;
+        try {
+            archive.add(name, dates);
+        } catch (IOException e) {
+            System.err.println("Error restoring archived history of " + name + ": " + e.getMessage());
+        }
     }
 
     // ================= BADGE SYSTEM =================
@@ -141,89 +399,558 @@ public class HabitManager {
     }
 
     // ================= PERSISTENCE =================
+    /**
+     * Writes all habits to a temp file and moves it over the habit file, so a
+     * reader (another window's live reload) never sees a half-written file and
+     * mistakes the missing records for deletes.
+     */
     public void saveHabits() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(FILE_NAME))) {
-            for (Habit h : habits) {
-                bw.write(h.toFileString());
-                bw.newLine();
+        HabitPalEvents.Save ev = new HabitPalEvents.Save();
+        ev.begin();
+        Map<String, String> written = new HashMap<>();
+        File tmp = new File(FILE_NAME + ".tmp");
+        try {
+            try (BufferedWriter bw = new BufferedWriter(new FileWriter(tmp))) {
+                for (Habit h : habits) {
+                    String line = h.toFileString();
+                    bw.write(line);
+                    bw.newLine();
+                    written.put(h.getName(), line);
+                }
             }
+            Files.move(tmp.toPath(), new File(FILE_NAME).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lastKnownLines = written;
         } catch (IOException e) {
             JOptionPane.showMessageDialog(null, "Error saving habits: " + e.getMessage());
         }
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.file = FILE_NAME;
+            ev.habits = habits.size();
+            ev.bytes = new File(FILE_NAME).length();
+            ev.commit();
+        }
     }
 
     public void loadHabits() {
+        HabitPalEvents.Load ev = new HabitPalEvents.Load();
+        ev.begin();
         habits.clear();
+        lastKnownLines = new HashMap<>();
+        recordedNames.clear();
         try (BufferedReader br = new BufferedReader(new FileReader(FILE_NAME))) {
             String line;
             while ((line = br.readLine()) != null) {
                 Habit h = Habit.fromFileString(line);
-                if (h != null) habits.add(h);
+                if (h != null) {
+                    habits.add(h);
+                    lastKnownLines.put(h.getName(), line);
+                    recordedNames.put(h, h.getName());
+                }
             }
         } catch (IOException ignored) {}
+        dueIndex.rebuild(habits);
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.file = FILE_NAME;
+            ev.habits = habits.size();
+            ev.bytes = new File(FILE_NAME).length();
+            ev.commit();
+        }
     }
 
-    // ================= REMINDERS =================
-    private long millisUntilNext(String hhmm) {
+    // ================= COLD STORAGE =================
+    /**
+     * Moves completions older than the hot horizon (-Dhabitpal.hotHistoryDays,
+     * default 90, rounded back to a Monday so no week is split) into the
+     * per-year history segments. Segments are written before the habit is
+     * changed, so a crash in between only leaves dates in both places, which
+     * the next run merges. Returns true if any habit changed and needs saving.
+     */
+    private boolean archiveOldHistory() {
+        LocalDate cutoff = archiveCutoff();
+        boolean changed = false;
+        for (Habit h : habits) {
+            List<LocalDate> old = new ArrayList<>();
+            for (LocalDate d : h.getCompletedDates()) if (d.isBefore(cutoff)) old.add(d);
+            if (old.isEmpty()) continue;
+            String name = h.getName();
+            try {
+                archive.add(name, old);
+            } catch (IOException e) {
+                System.err.println("Error archiving history of " + name + ": " + e.getMessage());
+                continue;
+            }
+            h.archiveBefore(cutoff, () -> archive.allCompletions(name));
+            changed = true;
+        }
+        return changed;
+    }
+
+    /** First day kept hot: the hot horizon rounded back to a Monday */
+    private LocalDate archiveCutoff() {
+        return LocalDate.now().minusDays(hotHistoryDays)
+                .with(java.time.temporal.TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /**
+     * Adds or removes one completion of h. Days before h's archive boundary are
+     * changed in cold storage and the archived counters recounted; returns
+     * false (and changes nothing) if the archive could not be written.
+     */
+    private boolean changeCompletion(Habit h, LocalDate day, boolean done) {
+        LocalDate boundary = h.getArchivedBefore();
+        if (boundary == null || !day.isBefore(boundary)) {
+            h.setDoneOn(day, done);
+            return true;
+        }
+        List<LocalDate> days = Collections.singletonList(day);
         try {
-            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("H:mm");
-            LocalTime target = LocalTime.parse(hhmm, fmt);
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime next = LocalDateTime.of(now.toLocalDate(), target);
-            if (next.isBefore(now) || next.equals(now)) next = next.plusDays(1);
-            return Duration.between(now, next).toMillis();
-        } catch (DateTimeParseException e) {
-            return -1;
+            if (done) archive.add(h.getName(), days);
+            else archive.remove(h.getName(), days);
+        } catch (IOException e) {
+            System.err.println("Error changing archived history of " + h.getName() + ": " + e.getMessage());
+            return false;
+        }
+        h.recountArchived(archive.allCompletions(h.getName()));
+        return true;
+    }
+
+    /** Change-feed snapshot of h, with the dates it has in cold storage */
+    private void recordSnapshot(Habit h) {
+        feed.recordSnapshot(h, h.getArchivedBefore() == null
+                ? Collections.emptySet() : archive.allCompletions(h.getName()));
+    }
+
+    /** Years in which h has completions, archived or recent, ascending */
+    public List<Integer> getHistoryYears(Habit h) {
+        SortedSet<Integer> years = new TreeSet<>();
+        if (h.getArchivedBefore() != null) {
+            for (int y : archive.years()) {
+                if (!archive.completions(h.getName(), y).isEmpty()) years.add(y);
+            }
+        }
+        for (LocalDate d : h.getCompletedDates()) years.add(d.getYear());
+        return new ArrayList<>(years);
+    }
+
+    /** All completions of h in year, paging in that year's archive segment if needed */
+    public SortedSet<LocalDate> getCompletionsInYear(Habit h, int year) {
+        SortedSet<LocalDate> out = new TreeSet<>();
+        if (h.getArchivedBefore() != null && year <= h.getArchivedBefore().getYear()) {
+            out.addAll(archive.completions(h.getName(), year));
         }
+        for (LocalDate d : h.getCompletedDates()) if (d.getYear() == year) out.add(d);
+        return out;
+    }
+
+    // ================= LIVE RELOAD =================
+    /** Notified on the EDT after habits were changed by another process */
+    public interface HabitsListener {
+        /**
+         * @param changedRows indexes (into getHabits()) whose values changed in place
+         * @param structural  true if habits were added or removed, so rows shifted
+         */
+        void habitsReloaded(int[] changedRows, boolean structural);
+    }
+
+    public void addHabitsListener(HabitsListener l) { listeners.add(l); }
+    public void removeHabitsListener(HabitsListener l) { listeners.remove(l); }
+
+    /**
+     * Re-reads the habit file and merges records that differ from what this
+     * manager last read or wrote. Unchanged records are left alone, changed
+     * ones are updated in place (so references held by dialogs stay valid),
+     * and only affected reminders are rescheduled. Our own saves produce no
+     * diff, so this is safe to call after every file-modified event.
+     */
+    public void reloadChangedHabits() {
+        Map<String, String> onDisk = new LinkedHashMap<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(FILE_NAME))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                int comma = line.indexOf(',');
+                String name = comma < 0 ? line : line.substring(0, comma);
+                if (onDisk.put(name, line) != null) {
+                    // duplicate names cannot be matched record by record
+                    fullReload();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            return;                     // file briefly missing while being replaced
+        }
+
+        List<Integer> changedRows = new ArrayList<>();
+        boolean structural = false;
+
+        // removed externally
+        for (Habit h : new ArrayList<>(habits)) {
+            if (!onDisk.containsKey(h.getName())) {
+                removeHabit(h);
+                structural = true;
+            }
+        }
+
+        Map<String, Habit> byName = new HashMap<>();
+        for (Habit h : habits) byName.put(h.getName(), h);
+
+        for (Map.Entry<String, String> e : onDisk.entrySet()) {
+            String line = e.getValue();
+            if (line.equals(lastKnownLines.get(e.getKey()))) continue;
+            Habit parsed = Habit.fromFileString(line);
+            if (parsed == null) continue;
+
+            Habit existing = byName.get(e.getKey());
+            if (existing == null) {
+                habits.add(parsed);
+                recordSnapshot(parsed);
+                recordedNames.put(parsed, parsed.getName());
+                dueIndex.update(parsed);
+                scheduleReminder(parsed);
+                structural = true;
+            } else {
+                recordReloadedChange(existing, parsed);
+                existing.copyStateFrom(parsed);
+                dueIndex.update(existing);
+                scheduleReminder(existing);
+                changedRows.add(habits.indexOf(existing));
+            }
+        }
+        lastKnownLines = new HashMap<>(onDisk);
+
+        if (changedRows.isEmpty() && !structural) return;
+        int[] rows = changedRows.stream().mapToInt(Integer::intValue).toArray();
+        for (HabitsListener l : new ArrayList<>(listeners)) l.habitsReloaded(rows, structural);
+    }
+
+    /** Records in the change feed how a reloaded record differs, so external edits sync like local ones */
+    private void recordReloadedChange(Habit old, Habit now) {
+        if (!old.getFrequency().equals(now.getFrequency()) || old.getTotalDays() != now.getTotalDays()
+                || !old.getReminderTime().equals(now.getReminderTime())) {
+            feed.recordMeta(now);
+        }
+        LocalDate archivedBefore = now.getArchivedBefore();
+        List<LocalDate> added = new ArrayList<>(), removed = new ArrayList<>();
+        for (LocalDate d : now.getCompletedDates()) if (!old.isDoneOn(d)) added.add(d);
+        for (LocalDate d : old.getCompletedDates()) {
+            // dates that moved to cold storage are still done
+            if (!now.isDoneOn(d) && (archivedBefore == null || !d.isBefore(archivedBefore))) removed.add(d);
+        }
+        feed.recordDone(now.getName(), added, true);
+        feed.recordDone(now.getName(), removed, false);
+    }
+
+    private void fullReload() {
+        loadHabits();
+        remindedOn.clear();             // the reloaded habits are new objects
+        scheduleAllReminders();
+        for (HabitsListener l : new ArrayList<>(listeners)) l.habitsReloaded(new int[0], true);
+    }
+
+    /** Stops watching the habit file for external changes */
+    public void stopWatching() {
+        if (watcher != null) watcher.close();
+        watcher = null;
+    }
+
+    // ================= REMINDERS =================
+    /** What the user chose for one habit in the reminder digest */
+    public enum ReminderAction { DONE, SNOOZE, SKIP }
+
+    private long millisUntilNext(int minuteOfDay) {
+        if (minuteOfDay < 0) return -1;
+        LocalTime target = LocalTime.of(minuteOfDay / 60, minuteOfDay % 60);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = LocalDateTime.of(now.toLocalDate(), target);
+        if (next.isBefore(now) || next.equals(now)) next = next.plusDays(1);
+        return Duration.between(now, next).toMillis();
     }
 
     public void scheduleAllReminders() {
-        for (java.util.Timer t : timers.values()) t.cancel();
-        timers.clear();
+        for (TimerTask t : reminderTasks.values()) t.cancel();
+        reminderTasks.clear();
+        reminderTimer.purge();
         for (Habit h : habits) scheduleReminder(h);
     }
 
     public void scheduleReminder(Habit h) {
-        String rt = h.getReminderTime();
-        if (rt == null || rt.trim().isEmpty()) return;
-        long delay = millisUntilNext(rt);
+        TimerTask old = reminderTasks.remove(h);
+        if (old != null) old.cancel();
+
+        long delay = millisUntilNext(h.getReminderMinute());
         if (delay < 0) return;
 
-        java.util.Timer timer = new java.util.Timer(true);
         TimerTask task = new TimerTask() {
             @Override
             public void run() {
-                javax.swing.SwingUtilities.invokeLater(() -> showReminderDialog(h));
+                javax.swing.SwingUtilities.invokeLater(() -> reminderDue(h));
             }
         };
-        timer.schedule(task, delay);
-        timers.put(h.getName(), timer);
+        reminderTimer.schedule(task, delay);
+        reminderTasks.put(h, task);
     }
 
-    private void showReminderDialog(Habit h) {
-        String msg = "Time for your habit:\n" + h.getName() + "\n[" + h.getFrequency() + "]";
-        String[] options = {"Mark Done", "Remind in 10 min", "Skip"};
-        int choice = JOptionPane.showOptionDialog(null, msg, "Habit Reminder",
-                JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE,
-                null, options, options[0]);
+    /** Habits due today and not yet done, by reminder time (those without a reminder last) */
+    public List<Habit> getDueToday() {
+        return dueIndex.dueOn(LocalDate.now());
+    }
 
-        if (choice == 0) {
-            markHabitComplete(h);
-            // markHabitComplete already shows motivational quote, so no double message here
-        } else if (choice == 1) {
-            java.util.Timer t = new java.util.Timer(true);
-            t.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    javax.swing.SwingUtilities.invokeLater(() -> showReminderDialog(h));
+    /** Habits due today and not yet done whose reminder falls within the next minutes */
+    public List<Habit> getDueWithin(int minutes) {
+        LocalTime now = LocalTime.now();
+        int from = now.getHour() * 60 + now.getMinute();
+        return dueIndex.dueBetween(LocalDate.now(), from, from + minutes);
+    }
+
+    /** Grouping window for the reminder digest, in minutes (0 = exact time only) */
+    public int getReminderWindowMinutes() { return reminderWindowMinutes; }
+    public void setReminderWindowMinutes(int minutes) { this.reminderWindowMinutes = Math.max(0, minutes); }
+
+    /**
+     * Runs on the EDT when h's reminder fires. Habits due within the window
+     * after h are pulled into the same digest so they are not shown one by one
+     * a few minutes later; their own timers then find them already delivered.
+     * The due index supplies them, so habits already done, not scheduled today
+     * or with the week's target met are not reminded.
+     */
+    private void reminderDue(Habit h) {
+        if (!habits.contains(h)) return;
+        HabitPalEvents.ReminderFire ev = new HabitPalEvents.ReminderFire();
+        ev.begin();
+        scheduleReminder(h);            // next day's occurrence
+
+        // h itself is included if it is still due today (scheduled, not done, week not complete)
+        LocalDate today = LocalDate.now();
+        int base = h.getReminderMinute();
+        for (Habit due : dueIndex.dueBetween(today, base, base + reminderWindowMinutes + 1)) {
+            enqueueReminder(due, today);
+        }
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.habit = h.getName();
+            ev.minute = base;
+            ev.pending = pendingReminders.size();
+            ev.commit();
+        }
+        showPendingReminders();
+    }
+
+    /**
+     * Queues h unless it is no longer due for that day's occurrence (done, not
+     * scheduled that day, or the week's target met), already done today, or
+     * was already delivered for that occurrence.
+     */
+    private void enqueueReminder(Habit h, LocalDate occurrence) {
+        if (!DueIndex.isDue(h, occurrence) || h.isDoneOn(LocalDate.now())) return;
+        if (occurrence.equals(remindedOn.get(h))) return;
+        remindedOn.put(h, occurrence);
+        pendingReminders.add(h);
+    }
+
+    /**
+     * Shows every queued reminder in one digest dialog. Reminders that fire while
+     * the (modal) dialog is open are queued and shown in a follow-up digest.
+     */
+    private void showPendingReminders() {
+        if (digestShowing) return;
+        digestShowing = true;
+        try {
+            while (!pendingReminders.isEmpty()) {
+                LocalDate today = LocalDate.now();
+                List<Habit> batch = new ArrayList<>(pendingReminders);
+                pendingReminders.clear();
+                batch.removeIf(x -> !habits.contains(x) || x.isDoneOn(today));
+                if (batch.isEmpty()) continue;
+
+                ReminderDigestDialog d = new ReminderDigestDialog(null, batch);
+                d.setVisible(true);
+                applyReminderDecisions(d.getDecisions());
+            }
+        } finally {
+            digestShowing = false;
+        }
+    }
+
+    /**
+     * Applies a whole digest at once: marks every DONE habit, snoozes every
+     * SNOOZE habit, then saves habits and badges once and shows one summary.
+     */
+    public void applyReminderDecisions(Map<Habit, ReminderAction> decisions) {
+        List<String> done = new ArrayList<>();
+        List<String> badgeMsgs = new ArrayList<>();
+        history.beginBatch();            // the whole digest is one undo step
+        try {
+            for (Map.Entry<Habit, ReminderAction> e : decisions.entrySet()) {
+                Habit h = e.getKey();
+                if (e.getValue() == ReminderAction.DONE) {
+                    String msg = completeAndAward(h);
+                    if (msg != null) badgeMsgs.add(msg);
+                    done.add(h.getName());
+                } else if (e.getValue() == ReminderAction.SNOOZE) {
+                    snoozeReminder(h, 10);
                 }
-            }, 10L * 60 * 1000);
+            }
+        } finally {
+            history.endBatch();
+        }
+        if (done.isEmpty()) return;
+
+        if (!badgeMsgs.isEmpty()) saveBadges();
+        saveHabits();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(done.size() == 1
+                ? "Marked '" + done.get(0) + "' done!"
+                : "Marked " + done.size() + " habits done:\n - " + String.join("\n - ", done));
+        for (String m : badgeMsgs) sb.append("\n\n").append(m);
+        sb.append("\n\n").append(quotes.next(done.size() == 1 ? done.get(0) : null));
+        JOptionPane.showMessageDialog(null, sb.toString(),
+                badgeMsgs.isEmpty() ? "Habit Updated" : "Badge Unlocked!", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void snoozeReminder(Habit h, int minutes) {
+        reminderTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                javax.swing.SwingUtilities.invokeLater(() -> {
+                    pendingReminders.add(h);
+                    showPendingReminders();
+                });
+            }
+        }, minutes * 60L * 1000);
+    }
+
+    /**
+     * Queues reminders whose most recent occurrence fell in (sinceMillis, nowMillis]
+     * and was not acted on, e.g. because the app was closed or the machine slept.
+     */
+    private void catchUpMissedReminders(long sinceMillis, long nowMillis) {
+        if (sinceMillis <= 0 || sinceMillis >= nowMillis) return;
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(nowMillis), zone);
+        for (Habit h : habits) {
+            int m = h.getReminderMinute();
+            if (m < 0) continue;
+            LocalDateTime occ = LocalDateTime.of(now.toLocalDate(), LocalTime.of(m / 60, m % 60));
+            if (occ.isAfter(now)) occ = occ.minusDays(1);
+            long occMillis = occ.atZone(zone).toInstant().toEpochMilli();
+            if (occMillis > sinceMillis) enqueueReminder(h, occ.toLocalDate());
+        }
+    }
+
+    /**
+     * Once a minute, records that reminders were live up to now. A gap much
+     * longer than the period means the process was suspended (machine asleep):
+     * missed reminders are caught up and all timers are re-armed, since timers
+     * scheduled before the sleep would otherwise fire late.
+     */
+    private void startReminderHeartbeat() {
+        reminderTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                long now = System.currentTimeMillis();
+                long last = lastReminderCheck;
+                lastReminderCheck = now;
+                saveReminderState();
+                if (now - last > 3 * HEARTBEAT_MILLIS) {
+                    javax.swing.SwingUtilities.invokeLater(() -> {
+                        catchUpMissedReminders(last, now);
+                        scheduleAllReminders();
+                        showPendingReminders();
+                    });
+                }
+            }
+        }, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS);
+    }
+
+    private void saveReminderState() {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(REMINDER_FILE))) {
+            bw.write(Long.toString(lastReminderCheck));
+        } catch (IOException e) {
+            System.err.println("Error saving reminder state: " + e.getMessage());
+        }
+    }
+
+    private long loadReminderState() {
+        try (BufferedReader br = new BufferedReader(new FileReader(REMINDER_FILE))) {
+            String line = br.readLine();
+            if (line != null) return Long.parseLong(line.trim());
+        } catch (IOException | NumberFormatException ignored) {}
+        return 0;
+    }
+
+    // ================= SYNC =================
+    /**
+     * Exchanges changes with this user's other HabitPal instances through
+     * sharedDir (any folder both machines can see). Only operations recorded
+     * since the last sync are written or read; merged changes are saved once.
+     */
+    public ChangeFeed.SyncStats syncWith(File sharedDir) throws IOException {
+        boolean first = !feed.isPublishing();
+        if (first) {
+            // nothing was recorded before the first sync: publish the habits as they are now
+            feed.startPublishing();
+            for (Habit h : habits) recordSnapshot(h);
+        }
+        ChangeFeed.SyncStats stats = feed.sync(sharedDir, new FeedTarget());
+        if (first) feed.compact(archiveCutoff());      // the snapshot's archived days are not needed in memory
+        if (stats.applied > 0) {
+            saveHabits();
+            scheduleAllReminders();
+            for (HabitsListener l : new ArrayList<>(listeners)) l.habitsReloaded(new int[0], true);
+        }
+        return stats;
+    }
+
+    /** Folder used by the last sync, or "" */
+    public String getSyncFolder() { return feed.getFolder(); }
+
+    public String getReplicaId() { return feed.getReplicaId(); }
+
+    private Habit findByName(String name) {
+        for (Habit h : habits) if (h.getName().equals(name)) return h;
+        return null;
+    }
+
+    /** Applies remote changes that won the merge to the in-memory habits */
+    private class FeedTarget implements ChangeFeed.Target {
+        @Override
+        public void putMeta(String name, String frequency, int totalDays, String reminderTime) {
+            Habit h = findByName(name);
+            if (h == null) {
+                h = new Habit(name, frequency, totalDays, reminderTime);
+                for (LocalDate d : feed.doneDays(name)) h.setDoneOn(d, true);
+                habits.add(h);
+                recordedNames.put(h, name);
+            } else {
+                applySettings(h, name, frequency, totalDays, reminderTime);
+            }
+            dueIndex.update(h);
+        }
+
+        @Override
+        public void deleteHabit(String name) {
+            Habit h = findByName(name);
+            if (h != null) dropHabit(h);
+        }
+
+        @Override
+        public void setDone(String name, LocalDate day, boolean done) {
+            Habit h = findByName(name);
+            if (h == null) return;
+            changeCompletion(h, day, done);
+            dueIndex.update(h);
         }
     }
 
     // ================= REPORT =================
     public void exportReport() {
-        String outFile = "habit_report_" + username + ".txt";
+        String outFile = new File(dataDir, "habit_report_" + username + ".txt").getPath();
+        HabitPalEvents.Export ev = new HabitPalEvents.Export();
+        ev.begin();
         try (BufferedWriter bw = new BufferedWriter(new FileWriter(outFile))) {
             bw.write("HabitPal Report for " + username + "\n");
             bw.write("Generated on: " + LocalDateTime.now() + "\n\n");
@@ -236,23 +963,39 @@ public class HabitManager {
                 totalProgress += h.getProgress();
                 bw.write(String.format("%-20s %-8s %2d/%-7d %-8d %-9.1f %-10s\n",
                         h.getName(), h.getFrequency(),
-                        h.getCompletedDays(), h.getTotalDays(),
+                        h.getCreditedCompletions(), h.getTargetCompletions(),
                         h.getStreakCount(), h.getProgress(), h.getReminderTime()));
             }
 
             if (!habits.isEmpty()) {
                 double avg = totalProgress / habits.size();
                 bw.write("\nAverage Progress: " + String.format("%.1f%%", avg) + "\n");
+
+                bw.write("\nCompletions by Year:\n");
+                for (Habit h : habits) {
+                    StringBuilder sb = new StringBuilder(String.format("%-20s", h.getName()));
+                    for (int y : getHistoryYears(h)) {
+                        sb.append(' ').append(y).append(": ").append(getCompletionsInYear(h, y).size());
+                    }
+                    bw.write(sb.append('\n').toString());
+                }
             }
             bw.write("\nBadges Earned:\n");
             for (var e : badgeCounts.entrySet()) {
                 bw.write(" - " + e.getKey() + ": " + e.getValue() + "\n");
             }
-
-            JOptionPane.showMessageDialog(null, "Report exported to " + outFile);
         } catch (IOException e) {
             JOptionPane.showMessageDialog(null, "Export error: " + e.getMessage());
+            return;
+        }
+        ev.end();
+        if (ev.shouldCommit()) {
+            ev.file = outFile;
+            ev.habits = habits.size();
+            ev.bytes = new File(outFile).length();
+            ev.commit();
         }
+        JOptionPane.showMessageDialog(null, "Report exported to " + outFile);
     }
 
     // ================= PROFILE =================
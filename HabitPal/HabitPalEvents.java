@@ -0,0 +1,74 @@
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events for the work HabitPal does on the EDT.
+ *
+ * Events cost almost nothing unless a recording is running, e.g.
+ *   java -XX:StartFlightRecording=filename=habitpal.jfr HabitPalGUI
+ * and are then listed under "HabitPal" in JDK Mission Control. Callers fill
+ * in size fields only when {@code shouldCommit()} says the event is wanted.
+ */
+public final class HabitPalEvents {
+    private HabitPalEvents() {}
+
+    @Name("habitpal.Load")
+    @Label("Load Habits")
+    @Category("HabitPal")
+    @StackTrace(false)
+    public static class Load extends Event {
+        @Label("File") String file;
+        @Label("Habits") int habits;
+        @Label("Size") @DataAmount long bytes;
+    }
+
+    @Name("habitpal.Save")
+    @Label("Save Habits")
+    @Category("HabitPal")
+    @StackTrace(false)
+    public static class Save extends Event {
+        @Label("File") String file;
+        @Label("Habits") int habits;
+        @Label("Size") @DataAmount long bytes;
+    }
+
+    @Name("habitpal.Export")
+    @Label("Export Report")
+    @Category("HabitPal")
+    @StackTrace(false)
+    public static class Export extends Event {
+        @Label("File") String file;
+        @Label("Habits") int habits;
+        @Label("Size") @DataAmount long bytes;
+    }
+
+    @Name("habitpal.Mark")
+    @Label("Mark Habit Done")
+    @Category("HabitPal")
+    @StackTrace(false)
+    public static class Mark extends Event {
+        @Label("Habit") String habit;
+        @Label("Streak") int streak;
+        @Label("Badge Awarded") boolean badge;
+    }
+
+    @Name("habitpal.ReminderFire")
+    @Label("Reminder Fired")
+    @Category("HabitPal")
+    @StackTrace(false)
+    public static class ReminderFire extends Event {
+        @Label("Habit") String habit;
+        @Label("Reminder Minute") int minute;
+        @Label("Pending Reminders") int pending;
+    }
+
+    @Name("habitpal.EdtStall")
+    @Label("EDT Stall")
+    @Category("HabitPal")
+    @Description("The Swing event dispatch thread was busy longer than the watchdog threshold")
+    @StackTrace(false)
+    public static class EdtStall extends Event {
+        @Label("Blocked") @Timespan(Timespan.MILLISECONDS) long blockedMillis;
+        @Label("Event") String awtEvent;
+        @Label("EDT Stack") String stack;
+    }
+}
@@ -29,13 +29,15 @@ public class HabitPalGUI extends JFrame {
         title.setFont(new Font("SansSerif", Font.BOLD, 20));
         top.add(title, BorderLayout.CENTER);
 
-        JPanel mainButtons = new JPanel(new GridLayout(2, 3, 10, 10));
+        JPanel mainButtons = new JPanel(new GridLayout(3, 3, 10, 10));
         JButton addBtn = new JButton("Add Habit");
         JButton viewBtn = new JButton("View Habits");
         JButton badgesBtn = new JButton("View Badges");
         JButton exportBtn = new JButton("Export Report");
         JButton refreshBtn = new JButton("Refresh Reminders");
         JButton profileBtn = new JButton("Profile");
+        JButton syncBtn = new JButton("Sync");
+        JButton dueBtn = new JButton("Due Today");
         JButton exitBtn = new JButton("Save & Exit");
 
         mainButtons.add(addBtn);
@@ -44,6 +46,8 @@ public class HabitPalGUI extends JFrame {
         mainButtons.add(exportBtn);
         mainButtons.add(refreshBtn);
         mainButtons.add(profileBtn);
+        mainButtons.add(syncBtn);
+        mainButtons.add(dueBtn);
         
         // === Exit button panel (centered single button) ===
         JPanel bottomPanel = new JPanel();
@@ -93,6 +97,42 @@ public class HabitPalGUI extends JFrame {
             pd.setVisible(true);
         });
 
+        dueBtn.addActionListener(e -> {
+            java.util.List<Habit> soon = manager.getDueWithin(60);
+            java.util.List<Habit> today = manager.getDueToday();
+            if (today.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Nothing left to do today. Well done!");
+                return;
+            }
+            StringBuilder sb = new StringBuilder();
+            if (!soon.isEmpty()) {
+                sb.append("Due in the next hour:\n");
+                for (Habit h : soon) sb.append(" - ").append(h.getName()).append(" at ").append(h.getReminderTime()).append("\n");
+                sb.append("\n");
+            }
+            sb.append("Still to do today:\n");
+            for (Habit h : today) {
+                sb.append(" - ").append(h.getName());
+                if (!h.getReminderTime().isEmpty()) sb.append(" (").append(h.getReminderTime()).append(")");
+                sb.append("\n");
+            }
+            JOptionPane.showMessageDialog(this, sb.toString(), "Due Today", JOptionPane.INFORMATION_MESSAGE);
+        });
+
+        syncBtn.addActionListener(e -> {
+            JFileChooser fc = new JFileChooser(manager.getSyncFolder().isEmpty() ? null : manager.getSyncFolder());
+            fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            fc.setDialogTitle("Choose a folder shared with your other devices");
+            if (fc.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            try {
+                ChangeFeed.SyncStats st = manager.syncWith(fc.getSelectedFile());
+                JOptionPane.showMessageDialog(this, "Sync complete.\nSent " + st.sent
+                        + " change(s), applied " + st.applied + " change(s) from other devices.");
+            } catch (java.io.IOException ex) {
+                JOptionPane.showMessageDialog(this, "Sync error: " + ex.getMessage());
+            }
+        });
+
         exitBtn.addActionListener(e -> {
             manager.saveHabits();
             JOptionPane.showMessageDialog(this, "Data saved successfully. Exiting HabitPal.");
@@ -158,7 +198,8 @@ public class HabitPalGUI extends JFrame {
             add(nameF);
 
             add(new JLabel("Frequency:"));
-            JComboBox<String> freqC = new JComboBox<>(new String[]{"Daily", "Weekly"});
+            JComboBox<String> freqC = new JComboBox<>(new String[]{"Daily", "Weekly", "3x/week", "Mon/Wed/Fri"});
+            freqC.setEditable(true);
             add(freqC);
 
             add(new JLabel("Total days to track:"));
@@ -178,7 +219,7 @@ public class HabitPalGUI extends JFrame {
 
             addBtn.addActionListener(e -> {
                 String nm = nameF.getText().trim();
-                String freq = (String) freqC.getSelectedItem();
+                String freq = String.valueOf(freqC.getSelectedItem()).trim();
                 int days = (Integer) daysS.getValue();
                 String rt = timeF.getText().trim();
 
@@ -186,6 +227,11 @@ public class HabitPalGUI extends JFrame {
                     JOptionPane.showMessageDialog(this, "Please enter a habit name.");
                     return;
                 }
+                if (!HabitSchedule.isValid(freq)) {
+                    JOptionPane.showMessageDialog(this, "Frequency must be Daily, Weekly, Nx/week or days like Mon/Wed/Fri.");
+                    return;
+                }
+                freq = HabitSchedule.parse(freq).getLabel();
 
                 Habit h = new Habit(nm, freq, days, rt);
                 manager.addHabit(h);
@@ -200,10 +246,13 @@ public class HabitPalGUI extends JFrame {
         DefaultTableModel model;
         JTable table;
         HabitManager manager;
+        private final HabitManager.HabitsListener reloadListener = this::onHabitsReloaded;
 
         public ViewHabitsDialog(JFrame parent, HabitManager manager) {
             super(parent, "View Habits", true);
             this.manager = manager;
+            manager.addHabitsListener(reloadListener);
+            setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 
             String[] cols = {"#", "Name", "Freq", "Progress", "Streak", "Reminder"};
             model = new DefaultTableModel(cols, 0) {
@@ -221,16 +270,20 @@ public class HabitPalGUI extends JFrame {
             JButton delBtn = new JButton("Delete");
             JButton editBtn = new JButton("Edit");
             JButton calBtn = new JButton("View Progress Calendar");
+            JButton undoBtn = new JButton("Undo");
+            JButton redoBtn = new JButton("Redo");
             JButton closeBtn = new JButton("Close");
 
             bottom.add(markBtn);
             bottom.add(delBtn);
             bottom.add(editBtn);
             bottom.add(calBtn);
+            bottom.add(undoBtn);
+            bottom.add(redoBtn);
             bottom.add(closeBtn);
             add(bottom, BorderLayout.SOUTH);
 
-            setSize(600, 350);
+            setSize(760, 350);
             setLocationRelativeTo(parent);
 
             markBtn.addActionListener(e -> {
@@ -260,10 +313,19 @@ public class HabitPalGUI extends JFrame {
                 int r = table.getSelectedRow();
                 if (r == -1) { JOptionPane.showMessageDialog(this, "Select a habit to view calendar."); return; }
                 Habit h = manager.getHabits().get(r);
-                ProgressCalendarDialog cd = new ProgressCalendarDialog(parent, h);
+                ProgressCalendarDialog cd = new ProgressCalendarDialog(parent, h, manager);
                 cd.setVisible(true);
             });
 
+            // undo/redo refresh the table through the reload listener
+            undoBtn.addActionListener(e -> {
+                if (!manager.undo()) JOptionPane.showMessageDialog(this, "Nothing to undo.");
+            });
+
+            redoBtn.addActionListener(e -> {
+                if (!manager.redo()) JOptionPane.showMessageDialog(this, "Nothing to redo.");
+            });
+
             closeBtn.addActionListener(e -> dispose());
         }
 
@@ -271,20 +333,41 @@ public class HabitPalGUI extends JFrame {
             model.setRowCount(0);
             java.util.List<Habit> list = manager.getHabits();
             for (int i = 0; i < list.size(); i++) {
-                Habit h = list.get(i);
-                model.addRow(new Object[]{
-                        i + 1,
-                        h.getName(),
-                        h.getFrequency(),
-                        String.format("%.1f%% (%d/%d)", h.getProgress(), h.getCompletedDays(), h.getTotalDays()),
-                        h.getStreakCount(),
-                        h.getReminderTime()
-                });
+                model.addRow(rowFor(i, list.get(i)));
+            }
+        }
+
+        /** Applies an external reload: rewrites only the changed rows unless rows shifted */
+        private void onHabitsReloaded(int[] changedRows, boolean structural) {
+            if (structural) { refreshTable(); return; }
+            java.util.List<Habit> list = manager.getHabits();
+            for (int r : changedRows) {
+                if (r < 0 || r >= list.size() || r >= model.getRowCount()) continue;
+                Object[] row = rowFor(r, list.get(r));
+                for (int c = 0; c < row.length; c++) model.setValueAt(row[c], r, c);
             }
         }
+
+        private Object[] rowFor(int i, Habit h) {
+            return new Object[]{
+                    i + 1,
+                    h.getName(),
+                    h.getFrequency(),
+                    String.format("%.1f%% (%d/%d)", h.getProgress(), h.getCreditedCompletions(), h.getTargetCompletions()),
+                    h.getStreakCount() + " " + h.getSchedule().getPeriodUnit(),
+                    h.getReminderTime()
+            };
+        }
+
+        @Override
+        public void dispose() {
+            manager.removeHabitsListener(reloadListener);
+            super.dispose();
+        }
     }
 
     public static void main(String[] args) {
+        EdtWatchdog.installFromProperty();     // -Dhabitpal.edtStallMillis=N reports EDT stalls over N ms
         SwingUtilities.invokeLater(() -> {
             String username = JOptionPane.showInputDialog(null,
                     "Enter your profile name (for saving habits):", "Login", JOptionPane.PLAIN_MESSAGE);
@@ -0,0 +1,166 @@
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
+/**
+ * A habit's frequency, parsed from its label, and the rules that turn it into
+ * periods: which period a date belongs to, how many completions satisfy a
+ * period, and whether a completion on a given day counts at all.
+ *
+ * Labels: "Daily", "Weekly", "3x/week" (N times per week) and weekday lists
+ * such as "Mon/Wed/Fri". Weeks run Monday to Sunday.
+ */
+public final class HabitSchedule implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Frequency kind;
+    private final int timesPerWeek;    // TIMES_PER_WEEK only
+    private final int weekdayMask;     // WEEKDAYS only: bit (dayOfWeek - 1), Monday = bit 0
+
+    private HabitSchedule(Frequency kind, int timesPerWeek, int weekdayMask) {
+        this.kind = kind;
+        this.timesPerWeek = timesPerWeek;
+        this.weekdayMask = weekdayMask;
+    }
+
+    public static final HabitSchedule DAILY = new HabitSchedule(Frequency.DAILY, 0, 0);
+    public static final HabitSchedule WEEKLY = new HabitSchedule(Frequency.WEEKLY, 0, 0);
+
+    public static HabitSchedule timesPerWeek(int n) {
+        return new HabitSchedule(Frequency.TIMES_PER_WEEK, Math.max(1, Math.min(7, n)), 0);
+    }
+
+    public static HabitSchedule weekdays(int mask) {
+        mask &= 0x7F;
+        return mask == 0 ? DAILY : new HabitSchedule(Frequency.WEEKDAYS, 0, mask);
+    }
+
+    /** Rebuilds a schedule from its kind and {@link #getArgument()} */
+    public static HabitSchedule of(Frequency kind, int argument) {
+        switch (kind) {
+            case WEEKLY: return WEEKLY;
+            case TIMES_PER_WEEK: return timesPerWeek(argument);
+            case WEEKDAYS: return weekdays(argument);
+            default: return DAILY;
+        }
+    }
+
+    /** Lenient parse used for stored data: anything unrecognised is Daily */
+    public static HabitSchedule parse(String label) {
+        HabitSchedule s = parseStrict(label);
+        return s != null ? s : DAILY;
+    }
+
+    /** True if label is a frequency this class understands (for input validation) */
+    public static boolean isValid(String label) {
+        return parseStrict(label) != null;
+    }
+
+    private static HabitSchedule parseStrict(String label) {
+        if (label == null) return null;
+        String s = label.trim().toLowerCase(Locale.ROOT);
+        if (s.isEmpty() || s.equals("daily")) return DAILY;
+        if (s.equals("weekly")) return WEEKLY;
+
+        // "3x/week", "3x per week", "3 x/week"
+        int x = s.indexOf('x');
+        if (x > 0 && s.substring(x + 1).replace(" ", "").matches("(/|per)week")) {
+            try {
+                int n = Integer.parseInt(s.substring(0, x).trim());
+                if (n >= 1 && n <= 7) return timesPerWeek(n);
+            } catch (NumberFormatException ignore) {}
+            return null;
+        }
+
+        // "Mon/Wed/Fri"
+        int mask = 0;
+        for (String tok : s.split("[/\\s]+")) {
+            if (tok.isEmpty()) continue;
+            int bit = -1;
+            for (DayOfWeek d : DayOfWeek.values()) {
+                String full = d.name().toLowerCase(Locale.ROOT);
+                if (tok.length() >= 3 && full.startsWith(tok)) { bit = d.getValue() - 1; break; }
+            }
+            if (bit < 0) return null;
+            mask |= 1 << bit;
+        }
+        return mask == 0 ? null : weekdays(mask);
+    }
+
+    public Frequency getKind() { return kind; }
+
+    /** N for TIMES_PER_WEEK, the weekday mask for WEEKDAYS, 0 otherwise */
+    public int getArgument() {
+        return kind == Frequency.TIMES_PER_WEEK ? timesPerWeek : kind == Frequency.WEEKDAYS ? weekdayMask : 0;
+    }
+
+    /** Label as stored in the habit file */
+    public String getLabel() {
+        switch (kind) {
+            case WEEKLY: return "Weekly";
+            case TIMES_PER_WEEK: return timesPerWeek + "x/week";
+            case WEEKDAYS: {
+                StringBuilder sb = new StringBuilder();
+                for (DayOfWeek d : DayOfWeek.values()) {
+                    if ((weekdayMask & (1 << (d.getValue() - 1))) == 0) continue;
+                    if (sb.length() > 0) sb.append('/');
+                    sb.append(d.getDisplayName(TextStyle.SHORT, Locale.ENGLISH));
+                }
+                return sb.toString();
+            }
+            default: return "Daily";
+        }
+    }
+
+    /** True if periods are weeks rather than days */
+    public boolean isWeekly() { return kind != Frequency.DAILY; }
+
+    /** "days" or "weeks", for streak labels */
+    public String getPeriodUnit() { return isWeekly() ? "weeks" : "days"; }
+
+    /** Index of the period containing day: the epoch day, or the Monday-based week number */
+    public long periodOf(LocalDate day) {
+        long epochDay = day.toEpochDay();
+        return isWeekly() ? Math.floorDiv(epochDay + 3, 7) : epochDay;   // 1970-01-01 was a Thursday
+    }
+
+    /** First day of a period */
+    public LocalDate periodStart(long period) {
+        return isWeekly() ? LocalDate.ofEpochDay(period * 7 - 3) : LocalDate.ofEpochDay(period);
+    }
+
+    /** Completions needed to satisfy one period */
+    public int getTarget() {
+        switch (kind) {
+            case TIMES_PER_WEEK: return timesPerWeek;
+            case WEEKDAYS: return Integer.bitCount(weekdayMask);
+            default: return 1;
+        }
+    }
+
+    /** Whether the habit is scheduled on this day (only weekday lists exclude days) */
+    public boolean isScheduledOn(LocalDate day) {
+        return kind != Frequency.WEEKDAYS || (weekdayMask & (1 << (day.getDayOfWeek().getValue() - 1))) != 0;
+    }
+
+    /** Number of periods covered by a goal of totalDays days (at least one) */
+    public int periodsIn(int totalDays) {
+        if (!isWeekly()) return totalDays;
+        return Math.max(1, (totalDays + 6) / 7);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof HabitSchedule)) return false;
+        HabitSchedule s = (HabitSchedule) o;
+        return kind == s.kind && timesPerWeek == s.timesPerWeek && weekdayMask == s.weekdayMask;
+    }
+
+    @Override
+    public int hashCode() { return kind.hashCode() * 31 + timesPerWeek * 131 + weekdayMask; }
+
+    @Override
+    public String toString() { return getLabel(); }
+}
@@ -0,0 +1,371 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Column-oriented, in-memory store for very large numbers of habits.
+ *
+ * Each habit is a row index into primitive arrays instead of a separate
+ * Habit object with its own Strings and Set. Frequency is stored as a
+ * Frequency ordinal plus its HabitSchedule argument and the reminder as a
+ * pre-parsed minute of day. Completed dates are kept as runs of consecutive
+ * epoch days (start, length) in one shared int pool. ProfileAggregator loads
+ * every profile through {@link #load(File)} and reads the aggregates below.
+ *
+ * Use {@link #row(int)} for a Habit-like read view, or {@link #toHabit(int)}
+ * to get a full Habit back (e.g. to hand to HabitManager or the GUI).
+ */
+public class HabitTable {
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private int size = 0;
+
+    // ---- per-row columns ----
+    private String[] names;
+    private byte[] frequency;          // Frequency ordinal
+    private byte[] frequencyArg;       // HabitSchedule argument (N per week, or weekday mask)
+    private int[] totalDays;
+    private int[] completedDays;
+    private int[] credited;            // completions counted towards the goal
+    private short[] reminderMinute;    // minute of day, -1 if none
+    private int[] streakCount;
+    private byte[] highestBadge;
+    private int[] lastCompletedDay;    // epoch day, NO_DATE if none
+    private int[] runsOffset;          // start index into runPool
+    private int[] runsCount;           // number of (start, length) pairs
+    private String[] archiveFields;    // Habit.archiveFields() if history is in cold storage, else null
+
+    // ---- shared completion runs: start0, len0, start1, len1, ... ----
+    private int[] runPool = new int[64];
+    private int runPoolSize = 0;
+    private int runPoolGarbage = 0;    // ints no longer referenced by any row
+
+    public HabitTable() { this(16); }
+
+    public HabitTable(int initialCapacity) {
+        int cap = Math.max(1, initialCapacity);
+        names = new String[cap];
+        frequency = new byte[cap];
+        frequencyArg = new byte[cap];
+        totalDays = new int[cap];
+        completedDays = new int[cap];
+        credited = new int[cap];
+        reminderMinute = new short[cap];
+        streakCount = new int[cap];
+        highestBadge = new byte[cap];
+        lastCompletedDay = new int[cap];
+        runsOffset = new int[cap];
+        runsCount = new int[cap];
+        archiveFields = new String[cap];
+    }
+
+    public int size() { return size; }
+
+    // ================= BUILD =================
+
+    /** Builds a table from existing Habit objects */
+    public static HabitTable of(List<Habit> habits) {
+        HabitTable t = new HabitTable(habits.size());
+        for (Habit h : habits) t.add(h);
+        return t;
+    }
+
+    /** Streams a habits_*.txt file into a table; each line's Habit is discarded once copied */
+    public static HabitTable load(File file) throws IOException {
+        HabitTable t = new HabitTable();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                Habit h = Habit.fromFileString(line);
+                if (h != null) t.add(h);
+            }
+        }
+        return t;
+    }
+
+    /** Appends a habit as a new row and returns its row index */
+    public int add(Habit h) {
+        ensureCapacity(size + 1);
+        int r = size++;
+        names[r] = h.getName();
+        frequency[r] = (byte) h.getSchedule().getKind().ordinal();
+        frequencyArg[r] = (byte) h.getSchedule().getArgument();
+        totalDays[r] = h.getTotalDays();
+        completedDays[r] = h.getCompletedDays();
+        credited[r] = h.getCreditedCompletions();
+        reminderMinute[r] = (short) h.getReminderMinute();
+        streakCount[r] = h.getStreakCount();
+        highestBadge[r] = (byte) h.getHighestBadge();
+        lastCompletedDay[r] = h.getLastCompletedDate() != null
+                ? (int) h.getLastCompletedDate().toEpochDay() : NO_DATE;
+        archiveFields[r] = h.getArchivedBefore() != null ? h.archiveFields() : null;
+        setRuns(r, h.getCompletedDates());
+        return r;
+    }
+
+    /** Rebuilds a full Habit from a row */
+    public Habit toHabit(int r) {
+        checkRow(r);
+        return Habit.fromFileString(toFileString(r));
+    }
+
+    /** Same line format as Habit.toFileString(), written straight from the columns */
+    public String toFileString(int r) {
+        checkRow(r);
+        int m = reminderMinute[r];
+        String reminder = m < 0 ? "" : (m / 60) + ":" + String.format("%02d", m % 60);
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(names[r]).append(',')
+          .append(scheduleOf(r).getLabel()).append(',')
+          .append(totalDays[r]).append(',')
+          .append(completedDays[r]).append(',')
+          .append(reminder).append(',')
+          .append(streakCount[r]).append(',')
+          .append(highestBadge[r]).append(',')
+          .append(lastCompletedDay[r] == NO_DATE ? "" : LocalDate.ofEpochDay(lastCompletedDay[r]).toString())
+          .append(',');
+        int off = runsOffset[r];
+        long prevEnd = 0;
+        for (int i = 0; i < runsCount[r]; i++) {
+            int start = runPool[off + 2 * i];
+            int len = runPool[off + 2 * i + 1];
+            if (i == 0) sb.append(Habit.RUNS_PREFIX).append(start);
+            else sb.append(';').append(start - prevEnd);
+            sb.append('+').append(len);
+            prevEnd = (long) start + len;
+        }
+        if (archiveFields[r] != null) sb.append(archiveFields[r]);
+        return sb.toString();
+    }
+
+    public void writeTo(File file) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            for (int r = 0; r < size; r++) {
+                bw.write(toFileString(r));
+                bw.newLine();
+            }
+        }
+    }
+
+    // ================= ROW ACCESS =================
+
+    public String getName(int r) { checkRow(r); return names[r]; }
+    public Frequency getFrequency(int r) { checkRow(r); return Frequency.values()[frequency[r]]; }
+    public HabitSchedule getSchedule(int r) { checkRow(r); return scheduleOf(r); }
+    public int getTotalDays(int r) { checkRow(r); return totalDays[r]; }
+    public int getCompletedDays(int r) { checkRow(r); return completedDays[r]; }
+    public int getReminderMinute(int r) { checkRow(r); return reminderMinute[r]; }
+    public int getStreakCount(int r) { checkRow(r); return streakCount[r]; }
+    public int getHighestBadge(int r) { checkRow(r); return highestBadge[r]; }
+
+    public LocalDate getLastCompletedDate(int r) {
+        checkRow(r);
+        return lastCompletedDay[r] == NO_DATE ? null : LocalDate.ofEpochDay(lastCompletedDay[r]);
+    }
+
+    /** Same rule as Habit.getProgress(): credited completions over the frequency's target */
+    public double getProgress(int r) {
+        checkRow(r);
+        HabitSchedule s = scheduleOf(r);
+        int target = s.periodsIn(totalDays[r]) * s.getTarget();
+        if (target == 0) return 0;
+        return (credited[r] * 100.0) / target;
+    }
+
+    /** Binary search over the row's runs */
+    public boolean isDoneOn(int r, LocalDate day) {
+        checkRow(r);
+        long d = day.toEpochDay();
+        int off = runsOffset[r];
+        int lo = 0, hi = runsCount[r] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int start = runPool[off + 2 * mid];
+            int len = runPool[off + 2 * mid + 1];
+            if (d < start) hi = mid - 1;
+            else if (d >= (long) start + len) lo = mid + 1;
+            else return true;
+        }
+        return false;
+    }
+
+    /** Returns a reusable Habit-like view positioned on row r */
+    public Row row(int r) {
+        checkRow(r);
+        return new Row(r);
+    }
+
+    /**
+     * Lightweight read view of one row with the same getters as Habit.
+     * {@link #moveTo(int)} lets one instance walk the table without allocation.
+     */
+    public final class Row {
+        private int r;
+
+        private Row(int r) { this.r = r; }
+
+        public Row moveTo(int row) { checkRow(row); this.r = row; return this; }
+        public int index() { return r; }
+
+        public String getName() { return names[r]; }
+        public String getFrequency() { return scheduleOf(r).getLabel(); }
+        public int getTotalDays() { return totalDays[r]; }
+        public int getCompletedDays() { return completedDays[r]; }
+        public int getReminderMinute() { return reminderMinute[r]; }
+        public int getStreakCount() { return streakCount[r]; }
+        public int getHighestBadge() { return highestBadge[r]; }
+        public LocalDate getLastCompletedDate() { return HabitTable.this.getLastCompletedDate(r); }
+        public double getProgress() { return HabitTable.this.getProgress(r); }
+        public boolean isDoneOn(LocalDate day) { return HabitTable.this.isDoneOn(r, day); }
+        public Habit toHabit() { return HabitTable.this.toHabit(r); }
+
+        public String getReminderTime() {
+            int m = reminderMinute[r];
+            return m < 0 ? "" : (m / 60) + ":" + String.format("%02d", m % 60);
+        }
+    }
+
+    // ================= UPDATE =================
+
+    /** Replaces row r with the state of h (e.g. after it was edited or marked) */
+    public void set(int r, Habit h) {
+        checkRow(r);
+        names[r] = h.getName();
+        frequency[r] = (byte) h.getSchedule().getKind().ordinal();
+        frequencyArg[r] = (byte) h.getSchedule().getArgument();
+        totalDays[r] = h.getTotalDays();
+        completedDays[r] = h.getCompletedDays();
+        credited[r] = h.getCreditedCompletions();
+        reminderMinute[r] = (short) h.getReminderMinute();
+        streakCount[r] = h.getStreakCount();
+        highestBadge[r] = (byte) h.getHighestBadge();
+        lastCompletedDay[r] = h.getLastCompletedDate() != null
+                ? (int) h.getLastCompletedDate().toEpochDay() : NO_DATE;
+        archiveFields[r] = h.getArchivedBefore() != null ? h.archiveFields() : null;
+        runPoolGarbage += 2 * runsCount[r];
+        setRuns(r, h.getCompletedDates());
+    }
+
+    /** Removes row r by moving the last row into its slot (row order is not preserved) */
+    public void removeSwap(int r) {
+        checkRow(r);
+        runPoolGarbage += 2 * runsCount[r];
+        int last = --size;
+        if (r != last) {
+            names[r] = names[last];
+            frequency[r] = frequency[last];
+            frequencyArg[r] = frequencyArg[last];
+            totalDays[r] = totalDays[last];
+            completedDays[r] = completedDays[last];
+            credited[r] = credited[last];
+            reminderMinute[r] = reminderMinute[last];
+            streakCount[r] = streakCount[last];
+            highestBadge[r] = highestBadge[last];
+            lastCompletedDay[r] = lastCompletedDay[last];
+            runsOffset[r] = runsOffset[last];
+            runsCount[r] = runsCount[last];
+            archiveFields[r] = archiveFields[last];
+        }
+        names[last] = null;
+        archiveFields[last] = null;
+        if (runPoolGarbage > runPoolSize / 2) compactRuns();
+    }
+
+    // ================= AGGREGATES =================
+
+    /** Sum of completedDays over all rows */
+    public long totalCompletions() {
+        long sum = 0;
+        for (int r = 0; r < size; r++) sum += completedDays[r];
+        return sum;
+    }
+
+    /** Mean completion percentage, 0 when empty */
+    public double averageProgress() {
+        if (size == 0) return 0;
+        double sum = 0;
+        for (int r = 0; r < size; r++) sum += getProgress(r);
+        return sum / size;
+    }
+
+    // ================= INTERNALS =================
+
+    private HabitSchedule scheduleOf(int r) {
+        Frequency kind = Frequency.values()[frequency[r]];
+        return kind == Frequency.DAILY ? HabitSchedule.DAILY
+                : kind == Frequency.WEEKLY ? HabitSchedule.WEEKLY
+                : HabitSchedule.of(kind, frequencyArg[r]);
+    }
+
+    private void setRuns(int r, Collection<LocalDate> dates) {
+        int[] days = new int[dates.size()];
+        int n = 0;
+        for (LocalDate d : dates) days[n++] = (int) d.toEpochDay();
+        Arrays.sort(days);
+
+        // the row's old runs (already counted as garbage) must not be copied if the pool compacts below
+        runsCount[r] = 0;
+
+        // count runs first so the pool only grows once
+        int runs = 0;
+        for (int i = 0; i < n; i++) if (i == 0 || days[i] != days[i - 1] + 1) runs++;
+        ensureRunPool(2 * runs);
+
+        runsOffset[r] = runPoolSize;
+        runsCount[r] = runs;
+        int i = 0;
+        while (i < n) {
+            int start = days[i];
+            int j = i + 1;
+            while (j < n && days[j] == days[j - 1] + 1) j++;
+            runPool[runPoolSize++] = start;
+            runPool[runPoolSize++] = j - i;
+            i = j;
+        }
+    }
+
+    private void compactRuns() {
+        int[] pool = new int[Math.max(64, runPoolSize - runPoolGarbage)];
+        int pos = 0;
+        for (int r = 0; r < size; r++) {
+            int len = 2 * runsCount[r];
+            System.arraycopy(runPool, runsOffset[r], pool, pos, len);
+            runsOffset[r] = pos;
+            pos += len;
+        }
+        runPool = pool;
+        runPoolSize = pos;
+        runPoolGarbage = 0;
+    }
+
+    private void ensureRunPool(int extra) {
+        if (runPoolSize + extra <= runPool.length) return;
+        if (runPoolGarbage > runPoolSize / 2) compactRuns();
+        int needed = runPoolSize + extra;
+        if (needed > runPool.length) {
+            runPool = Arrays.copyOf(runPool, Math.max(needed, runPool.length + (runPool.length >> 1)));
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= names.length) return;
+        int cap = Math.max(needed, names.length + (names.length >> 1));
+        names = Arrays.copyOf(names, cap);
+        frequency = Arrays.copyOf(frequency, cap);
+        frequencyArg = Arrays.copyOf(frequencyArg, cap);
+        totalDays = Arrays.copyOf(totalDays, cap);
+        completedDays = Arrays.copyOf(completedDays, cap);
+        credited = Arrays.copyOf(credited, cap);
+        reminderMinute = Arrays.copyOf(reminderMinute, cap);
+        streakCount = Arrays.copyOf(streakCount, cap);
+        highestBadge = Arrays.copyOf(highestBadge, cap);
+        lastCompletedDay = Arrays.copyOf(lastCompletedDay, cap);
+        runsOffset = Arrays.copyOf(runsOffset, cap);
+        runsCount = Arrays.copyOf(runsCount, cap);
+        archiveFields = Arrays.copyOf(archiveFields, cap);
+    }
+
+    private void checkRow(int r) {
+        if (r < 0 || r >= size) throw new IndexOutOfBoundsException("row " + r + " of " + size);
+    }
+}
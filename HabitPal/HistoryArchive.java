@@ -0,0 +1,161 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for old completion dates.
+ *
+ * Dates older than the hot horizon are moved out of habits_<user>.txt into
+ * one gzip-compressed segment per year (history_<user>/<year>.gz), each line
+ * "name,runs" with runs in the same run-length format as the habit file.
+ * Segments are paged in only when a view needs that year (reports, year
+ * totals) and kept in a small LRU cache (-Dhabitpal.historyCacheYears,
+ * default 3), so the heap holds recent activity plus at most a few years.
+ *
+ * HabitManager purges a habit's history when the habit is deleted (the dates
+ * go into the undo record), so a new habit with that name starts empty.
+ */
+public class HistoryArchive {
+    private final File dir;
+    private final int cacheYears;
+
+    /** year -> (habit -> dates); access-ordered so the eldest entry is least recently used */
+    private final LinkedHashMap<Integer, Map<String, Set<LocalDate>>> cache;
+
+    public HistoryArchive(File dir) {
+        this(dir, Integer.getInteger("habitpal.historyCacheYears", 3));
+    }
+
+    public HistoryArchive(File dir, int cacheYears) {
+        this.dir = dir;
+        this.cacheYears = Math.max(1, cacheYears);
+        this.cache = new LinkedHashMap<Integer, Map<String, Set<LocalDate>>>(8, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Map<String, Set<LocalDate>>> eldest) {
+                return size() > HistoryArchive.this.cacheYears;
+            }
+        };
+    }
+
+    /** Years that have a segment on disk, ascending */
+    public List<Integer> years() {
+        List<Integer> out = new ArrayList<>();
+        File[] files = dir.listFiles((d, n) -> n.endsWith(".gz"));
+        if (files == null) return out;
+        for (File f : files) {
+            try { out.add(Integer.parseInt(f.getName().substring(0, f.getName().length() - 3))); }
+            catch (NumberFormatException ignore) {}
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    /** Archived dates of habit in year (paged in on first use); empty if the segment cannot be read */
+    public Set<LocalDate> completions(String habit, int year) {
+        Set<LocalDate> s;
+        try {
+            s = segment(year).get(habit);
+        } catch (IOException e) {
+            System.err.println("Error reading history segment " + fileFor(year) + ": " + e.getMessage());
+            return Collections.emptySet();
+        }
+        return s == null ? Collections.emptySet() : Collections.unmodifiableSet(s);
+    }
+
+    /** Every archived date of habit across all years (used for full recomputes) */
+    public Set<LocalDate> allCompletions(String habit) {
+        Set<LocalDate> out = new TreeSet<>();
+        for (int y : years()) out.addAll(completions(habit, y));
+        return out;
+    }
+
+    public boolean isDoneOn(String habit, LocalDate day) {
+        return completions(habit, day.getYear()).contains(day);
+    }
+
+    /** Merges dates into their year segments and rewrites the touched segments */
+    public void add(String habit, Collection<LocalDate> dates) throws IOException {
+        Map<Integer, List<LocalDate>> byYear = new TreeMap<>();
+        for (LocalDate d : dates) byYear.computeIfAbsent(d.getYear(), k -> new ArrayList<>()).add(d);
+        for (Map.Entry<Integer, List<LocalDate>> e : byYear.entrySet()) {
+            Map<String, Set<LocalDate>> seg = segment(e.getKey());
+            seg.computeIfAbsent(habit, k -> new TreeSet<>()).addAll(e.getValue());
+            write(e.getKey(), seg);
+        }
+    }
+
+    /** Removes dates from their year segments and rewrites the touched segments */
+    public void remove(String habit, Collection<LocalDate> dates) throws IOException {
+        Map<Integer, List<LocalDate>> byYear = new TreeMap<>();
+        for (LocalDate d : dates) byYear.computeIfAbsent(d.getYear(), k -> new ArrayList<>()).add(d);
+        for (Map.Entry<Integer, List<LocalDate>> e : byYear.entrySet()) {
+            Map<String, Set<LocalDate>> seg = segment(e.getKey());
+            Set<LocalDate> s = seg.get(habit);
+            if (s == null || !s.removeAll(e.getValue())) continue;
+            if (s.isEmpty()) seg.remove(habit);
+            write(e.getKey(), seg);
+        }
+    }
+
+    /** Moves history to a new name in every segment that has it */
+    public void rename(String oldName, String newName) throws IOException {
+        for (int y : years()) {
+            Map<String, Set<LocalDate>> seg = segment(y);
+            Set<LocalDate> s = seg.remove(oldName);
+            if (s == null) continue;
+            seg.computeIfAbsent(newName, k -> new TreeSet<>()).addAll(s);
+            write(y, seg);
+        }
+    }
+
+    // ================= SEGMENT FILES =================
+
+    private File fileFor(int year) { return new File(dir, year + ".gz"); }
+
+    /**
+     * Loads a year's segment. A read error is thrown, not cached: add/remove/rename
+     * would otherwise rewrite an unreadable segment with only the dates they touch.
+     */
+    private Map<String, Set<LocalDate>> segment(int year) throws IOException {
+        Map<String, Set<LocalDate>> seg = cache.get(year);
+        if (seg != null) return seg;
+        seg = new HashMap<>();
+        File f = fileFor(year);
+        if (f.isFile()) {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(f)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    int comma = line.lastIndexOf(',');
+                    if (comma <= 0) continue;
+                    Set<LocalDate> dates = new TreeSet<>();
+                    Habit.decodeCompletionRuns(line.substring(comma + 1), dates);
+                    seg.put(line.substring(0, comma), dates);
+                }
+            }
+        }
+        cache.put(year, seg);
+        return seg;
+    }
+
+    private void write(int year, Map<String, Set<LocalDate>> seg) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File tmp = new File(dir, year + ".gz.tmp");
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(tmp)), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Set<LocalDate>> e : seg.entrySet()) {
+                if (e.getValue().isEmpty()) continue;
+                bw.write(e.getKey() + "," + Habit.encodeCompletionRuns(e.getValue()));
+                bw.newLine();
+            }
+        }
+        // the segment is the only copy of that year, so replace it in one step
+        Files.move(tmp.toPath(), fileFor(year).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -1,7 +1,35 @@
-import java.util.Random;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Motivational quotes.
+ *
+ * Quotes come from an external corpus (default quotes.txt, or
+ * -Dhabitpal.quotes=path), one per line, optionally tagged with a habit
+ * category as "tag<TAB>quote". The corpus is memory-mapped and a line-offset
+ * index is kept next to it (quotes.txt.idx) and rebuilt when the corpus
+ * changes, so picking a quote decodes only that one line. Without a corpus
+ * the built-in list is used.
+ *
+ * An instance holds one user's rotation: each category walks a random
+ * permutation of its quotes, so nothing repeats until all have been shown.
+ * The permutation is a keyed 4-round Feistel network over the smallest
+ * power-of-four domain covering n, cycle-walked into [0, n) (fewer than four
+ * steps on average), so its state is three numbers per category and each pick
+ * is O(1) without storing a shuffled array.
+ */
 public class MotivationQuotes {
-    private static final String[] quotes = {
+    private static final String[] BUILT_IN = {
         "Small steps every day lead to big changes.",
         "Discipline beats motivation.",
         "Success doesn’t come from what you do occasionally, it comes from what you do consistently.",
@@ -34,8 +62,318 @@ public class MotivationQuotes {
         "Make habits your superpower."
     };
 
+    // ================= CORPUS =================
+
+    private static final int INDEX_MAGIC = 0x48505131;     // "HPQ1"
+    private static final String ALL = "*";
+
+    private static volatile Corpus corpus;
+
+    /** Mapped corpus plus its line index; both are read-only once built */
+    static final class Corpus {
+        private final ByteBuffer data;                     // null for the built-in list
+        private final LongBuffer offsets;                  // start of each quote line
+        private final int count;
+        private final Map<String, IntBuffer> tags = new HashMap<>();
+
+        private Corpus(ByteBuffer data, LongBuffer offsets, int count) {
+            this.data = data;
+            this.offsets = offsets;
+            this.count = count;
+        }
+
+        int size() { return count; }
+
+        /** Number of quotes tagged with tag, or all quotes for ALL */
+        int size(String tag) {
+            if (ALL.equals(tag)) return count;
+            IntBuffer ib = tags.get(tag);
+            return ib == null ? 0 : ib.limit();
+        }
+
+        /** The i-th quote of the given tag (or of the whole corpus for ALL) */
+        String get(String tag, int i) {
+            int line = ALL.equals(tag) ? i : tags.get(tag).get(i);
+            if (data == null) return BUILT_IN[line];
+
+            int start = (int) offsets.get(line);
+            int end = start;
+            int limit = data.limit();
+            while (end < limit && data.get(end) != '\n') end++;
+            if (end > start && data.get(end - 1) == '\r') end--;
+            for (int p = start; p < end && p - start < 40; p++) {
+                if (data.get(p) == '\t') { start = p + 1; break; }
+            }
+            byte[] b = new byte[end - start];
+            for (int k = 0; k < b.length; k++) b[k] = data.get(start + k);
+            return new String(b, StandardCharsets.UTF_8).trim();
+        }
+
+        boolean hasTag(String tag) { return tags.containsKey(tag); }
+    }
+
+    static Corpus corpus() {
+        Corpus c = corpus;
+        if (c == null) {
+            synchronized (MotivationQuotes.class) {
+                c = corpus;
+                if (c == null) corpus = c = openCorpus(new File(System.getProperty("habitpal.quotes", "quotes.txt")));
+            }
+        }
+        return c;
+    }
+
+    /** Maps the corpus and its index, building the index if missing or stale */
+    static Corpus openCorpus(File file) {
+        if (!file.isFile() || file.length() == 0 || file.length() > Integer.MAX_VALUE) {
+            return new Corpus(null, null, BUILT_IN.length);
+        }
+        try (FileChannel ch = FileChannel.open(file.toPath())) {
+            MappedByteBuffer data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            File idxFile = new File(file.getPath() + ".idx");
+            ByteBuffer idx = mapIndex(idxFile, file);
+            Corpus c = idx == null ? null : parseIndex(data, idx);
+            if (c == null) {
+                // missing, stale or damaged (e.g. truncated): rebuild and replace it in one step
+                byte[] built = buildIndex(data, file);
+                File tmp = new File(idxFile.getPath() + ".tmp");
+                try {
+                    Files.write(tmp.toPath(), built);
+                    Files.move(tmp.toPath(), idxFile.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    System.err.println("Quote index not saved (" + e.getMessage() + "); keeping it in memory");
+                }
+                c = parseIndex(data, ByteBuffer.wrap(built));
+            }
+            return c != null && c.count > 0 ? c : new Corpus(null, null, BUILT_IN.length);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read quotes from " + file + ": " + e.getMessage());
+            return new Corpus(null, null, BUILT_IN.length);
+        }
+    }
+
+    /** Maps an existing index if it was built for this exact corpus, else null */
+    private static ByteBuffer mapIndex(File idxFile, File corpusFile) {
+        if (!idxFile.isFile()) return null;
+        try (FileChannel ch = FileChannel.open(idxFile.toPath())) {
+            MappedByteBuffer idx = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            idx.order(ByteOrder.BIG_ENDIAN);
+            if (idx.limit() < 24 || idx.getInt(0) != INDEX_MAGIC
+                    || idx.getLong(4) != corpusFile.length()
+                    || idx.getLong(12) != corpusFile.lastModified()) return null;
+            return idx;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Index layout (big-endian):
+     * int magic, long corpusSize, long corpusMtime, int count, long[count] lineStarts,
+     * int tagCount, then per tag: short nameLen, name bytes (UTF-8), int n, int[n] lines.
+     */
+    private static byte[] buildIndex(ByteBuffer data, File file) throws IOException {
+        List<Long> starts = new ArrayList<>();
+        Map<String, List<Integer>> tagLines = new TreeMap<>();
+        int limit = data.limit();
+        int pos = 0;
+        while (pos < limit) {
+            int end = pos;
+            int tab = -1;
+            while (end < limit && data.get(end) != '\n') {
+                if (tab < 0 && end - pos < 40 && data.get(end) == '\t') tab = end;
+                end++;
+            }
+            int textEnd = (end > pos && data.get(end - 1) == '\r') ? end - 1 : end;
+            boolean blank = true;
+            for (int p = (tab >= 0 ? tab + 1 : pos); p < textEnd && blank; p++) {
+                if (data.get(p) > ' ') blank = false;
+            }
+            if (!blank) {
+                if (tab > pos) {
+                    byte[] t = new byte[tab - pos];
+                    for (int k = 0; k < t.length; k++) t[k] = data.get(pos + k);
+                    String tag = new String(t, StandardCharsets.UTF_8).trim().toLowerCase(Locale.ROOT);
+                    if (!tag.isEmpty()) tagLines.computeIfAbsent(tag, k -> new ArrayList<>()).add(starts.size());
+                }
+                starts.add((long) pos);
+            }
+            pos = end + 1;
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(28 + starts.size() * 8);
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(INDEX_MAGIC);
+        out.writeLong(file.length());
+        out.writeLong(file.lastModified());
+        out.writeInt(starts.size());
+        for (long s : starts) out.writeLong(s);
+        out.writeInt(tagLines.size());
+        for (Map.Entry<String, List<Integer>> e : tagLines.entrySet()) {
+            byte[] name = e.getKey().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeInt(e.getValue().size());
+            for (int line : e.getValue()) out.writeInt(line);
+        }
+        out.flush();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Wraps the index sections as buffer views; nothing is copied onto the heap.
+     * Every count, length and line reference is checked against the buffers, so
+     * a damaged index returns null (and is rebuilt) instead of failing later in get().
+     */
+    private static Corpus parseIndex(ByteBuffer data, ByteBuffer idx) {
+        long limit = idx.limit();
+        if (limit < 28) return null;
+        int count = idx.getInt(20);
+        long pos = 24;
+        if (count < 0 || pos + count * 8L + 4 > limit) return null;
+        LongBuffer offsets = idx.duplicate().position((int) pos).limit((int) pos + count * 8).slice().asLongBuffer();
+        for (int i = 0; i < count; i++) {
+            long start = offsets.get(i);
+            if (start < 0 || start >= data.limit()) return null;
+        }
+        Corpus c = new Corpus(data, offsets, count);
+        pos += count * 8L;
+
+        int tagCount = idx.getInt((int) pos);
+        pos += 4;
+        if (tagCount < 0) return null;
+        for (int t = 0; t < tagCount; t++) {
+            if (pos + 2 > limit) return null;
+            int len = idx.getShort((int) pos) & 0xFFFF;
+            pos += 2;
+            if (pos + len + 4 > limit) return null;
+            byte[] name = new byte[len];
+            for (int k = 0; k < len; k++) name[k] = idx.get((int) pos + k);
+            pos += len;
+            int n = idx.getInt((int) pos);
+            pos += 4;
+            if (n < 0 || pos + n * 4L > limit) return null;
+            IntBuffer lines = idx.duplicate().position((int) pos).limit((int) pos + n * 4).slice().asIntBuffer();
+            for (int k = 0; k < n; k++) {
+                int line = lines.get(k);
+                if (line < 0 || line >= count) return null;
+            }
+            c.tags.put(new String(name, StandardCharsets.UTF_8), lines);
+            pos += n * 4L;
+        }
+        return c;
+    }
+
+    // ================= SELECTION =================
+
+    /** Any quote, chosen uniformly at random (no rotation) */
     public static String getRandomQuote() {
-        Random rand = new Random();
-        return quotes[rand.nextInt(quotes.length)];
+        Corpus c = corpus();
+        return c.get(ALL, ThreadLocalRandom.current().nextInt(c.size()));
+    }
+
+    /** Position in one category's permutation */
+    private static final class Rotation {
+        int n;
+        long key;
+        int cursor;
+    }
+
+    private final File stateFile;
+    private final Map<String, Rotation> rotations = new HashMap<>();
+
+    /** One user's non-repeating rotation, persisted in stateFile */
+    public MotivationQuotes(File stateFile) {
+        this.stateFile = stateFile;
+        load();
+    }
+
+    /**
+     * Next quote in this user's rotation. If category (e.g. the habit name)
+     * matches a tag in the corpus, quotes with that tag are used; otherwise
+     * the whole corpus.
+     */
+    public synchronized String next(String category) {
+        Corpus c = corpus();
+        String key = category == null ? ALL : category.trim().toLowerCase(Locale.ROOT);
+        if (!c.hasTag(key)) key = ALL;
+
+        int n = c.size(key);
+        Rotation r = rotations.get(key);
+        if (r == null || r.n != n || r.cursor >= n) {
+            r = newRotation(n);
+            rotations.put(key, r);
+        }
+        int i = permute(r.cursor, n, r.key);
+        r.cursor++;
+        save();
+        return c.get(key, i);
+    }
+
+    private static Rotation newRotation(int n) {
+        Rotation r = new Rotation();
+        r.n = n;
+        r.cursor = 0;
+        r.key = ThreadLocalRandom.current().nextLong();
+        return r;
+    }
+
+    /** Position of the i-th pick: a keyed bijection of [0, n) */
+    static int permute(int i, int n, long key) {
+        int halfBits = 1;
+        while (1L << (2 * halfBits) < n) halfBits++;
+        long x = i;
+        do {
+            x = feistel(x, halfBits, key);
+        } while (x >= n);                   // cycle-walk values outside [0, n)
+        return (int) x;
+    }
+
+    private static long feistel(long x, int halfBits, long key) {
+        long mask = (1L << halfBits) - 1;
+        long left = x >>> halfBits, right = x & mask;
+        for (int round = 0; round < 4; round++) {
+            long next = left ^ (mix(key + round * 0x9E3779B97F4A7C15L + right) & mask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+
+    /** SplitMix64 finaliser */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private void load() {
+        try (BufferedReader br = new BufferedReader(new FileReader(stateFile))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] p = line.split(",", -1);
+                if (p.length != 4) continue;     // older affine-map state: start a fresh rotation
+                try {
+                    Rotation r = new Rotation();
+                    r.n = Integer.parseInt(p[1]);
+                    r.key = Long.parseLong(p[2]);
+                    r.cursor = Integer.parseInt(p[3]);
+                    rotations.put(p[0], r);
+                } catch (NumberFormatException ignore) {}
+            }
+        } catch (IOException ignored) {}
+    }
+
+    private void save() {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(stateFile))) {
+            for (Map.Entry<String, Rotation> e : rotations.entrySet()) {
+                Rotation r = e.getValue();
+                bw.write(e.getKey() + "," + r.n + "," + r.key + "," + r.cursor);
+                bw.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving quote rotation: " + e.getMessage());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Per-period completion counters for one habit, kept up to date as single
+ * dates are added or removed so that streak and progress never need a rescan
+ * of the completed dates.
+ *
+ * credited = sum over periods of min(count, target), i.e. the completions that
+ * count towards the goal. The streak is the number of consecutive satisfied
+ * periods ending at the latest satisfied period (for daily habits this is the
+ * old "consecutive days ending at the last completed day").
+ *
+ * Adding a completion in the newest periods is O(1). Back-filling an older
+ * period or removing a completion walks the satisfied periods around it
+ * (bounded by the streak length), which only happens on sync and undo.
+ *
+ * Once old dates have moved to cold storage (see HistoryArchive) the tracker
+ * only counts the hot dates. The streak of the latest archived run is carried
+ * over: it is the streak while no recent period is satisfied, and a recent run
+ * that reaches back to the boundary continues it if it was still open there.
+ */
+class PeriodTracker implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static final long NONE = Long.MIN_VALUE;
+
+    private HabitSchedule schedule;
+    private final Map<Long, Integer> counts = new HashMap<>();
+    private int credited = 0;
+    private long lastSatisfied = NONE;
+    private int streak = 0;
+
+    private LocalDate archivedBefore;      // first day not in cold storage, null if nothing archived
+    private int archivedStreak = 0;        // length of the latest satisfied run in cold storage
+    private boolean archivedRunOpen;       // that run ends in the period just before archivedBefore
+
+    PeriodTracker(HabitSchedule schedule) {
+        this.schedule = schedule;
+    }
+
+    HabitSchedule getSchedule() { return schedule; }
+    int getCredited() { return credited; }
+    int getStreak() { return streak; }
+
+    /** Completions counted in the period containing day */
+    int countFor(LocalDate day) {
+        return counts.getOrDefault(schedule.periodOf(day), 0);
+    }
+
+    boolean isSatisfied(long period) {
+        return counts.getOrDefault(period, 0) >= schedule.getTarget();
+    }
+
+    /** Sets the cold storage boundary (a Monday) and its latest run; call rebuild after */
+    void setArchived(LocalDate before, int carriedStreak, boolean runOpen) {
+        archivedBefore = before;
+        archivedStreak = carriedStreak;
+        archivedRunOpen = runOpen;
+    }
+
+    /** {credited, streak, latest satisfied period or NONE} of a set of dates (used when archiving) */
+    static long[] summarize(HabitSchedule s, Collection<LocalDate> dates) {
+        PeriodTracker t = new PeriodTracker(s);
+        t.rebuild(s, dates);
+        return new long[]{t.credited, t.streak, t.lastSatisfied};
+    }
+
+    /** Replaces the schedule and recounts dates (used on load and when the frequency changes) */
+    void rebuild(HabitSchedule s, Collection<LocalDate> dates) {
+        schedule = s;
+        counts.clear();
+        credited = 0;
+        lastSatisfied = NONE;
+        streak = streakWithoutHotPeriods();
+        LocalDate[] sorted = dates.toArray(new LocalDate[0]);
+        Arrays.sort(sorted);
+        for (LocalDate d : sorted) add(d);   // ascending, so every add takes the O(1) path
+    }
+
+    void add(LocalDate day) {
+        if (!schedule.isScheduledOn(day)) return;
+        long p = schedule.periodOf(day);
+        int c = counts.merge(p, 1, Integer::sum);
+        int target = schedule.getTarget();
+        if (c <= target) credited++;
+        if (c != target) return;
+
+        // period p just became satisfied
+        if (lastSatisfied == NONE) {
+            streak = walkBack(p);                  // may continue the archived streak
+            lastSatisfied = p;
+        } else if (p > lastSatisfied + 1) {
+            streak = 1;
+            lastSatisfied = p;
+        } else if (p == lastSatisfied + 1) {
+            streak++;
+            lastSatisfied = p;
+        } else {
+            streak = walkBack(lastSatisfied);      // back-fill may join two runs
+        }
+    }
+
+    void remove(LocalDate day) {
+        if (!schedule.isScheduledOn(day)) return;
+        long p = schedule.periodOf(day);
+        Integer c = counts.get(p);
+        if (c == null) return;
+        if (c == 1) counts.remove(p); else counts.put(p, c - 1);
+        int target = schedule.getTarget();
+        if (c <= target) credited--;
+        if (c != target || p > lastSatisfied) return;
+
+        // period p is no longer satisfied
+        if (p == lastSatisfied) {
+            lastSatisfied = NONE;
+            for (Map.Entry<Long, Integer> e : counts.entrySet()) {
+                if (e.getValue() >= target && (lastSatisfied == NONE || e.getKey() > lastSatisfied)) {
+                    lastSatisfied = e.getKey();
+                }
+            }
+        }
+        streak = lastSatisfied == NONE ? streakWithoutHotPeriods() : walkBack(lastSatisfied);
+    }
+
+    private int streakWithoutHotPeriods() {
+        return archivedBefore == null ? 0 : archivedStreak;
+    }
+
+    private int walkBack(long from) {
+        int n = 0;
+        while (isSatisfied(from - n)) n++;
+        if (archivedRunOpen && from - n == schedule.periodOf(archivedBefore) - 1) n += archivedStreak;
+        return n;
+    }
+}
@@ -0,0 +1,285 @@
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Global view over every profile in a directory.
+ *
+ * Finds all habits_<user>.txt files (plus the matching badges_<user>.txt),
+ * loads each into a {@link HabitTable} in parallel on a ForkJoinPool and
+ * reduces them into one
+ * {@link Summary}: total completions, badge distribution and bounded
+ * leaderboards (top habits by streak, top users by average progress).
+ * Streaks count days for daily habits and weeks for weekly kinds, so the two
+ * are ranked on separate leaderboards.
+ *
+ * Each profile's table is dropped as soon as it has been folded into its
+ * partial Summary, so memory stays proportional to the largest profile and
+ * the leaderboard size, not to the number of users.
+ *
+ * Run headless with:  java ProfileAggregator [dir] [topK]
+ */
+public class ProfileAggregator {
+    private static final String HABIT_PREFIX = "habits_";
+    private static final String BADGE_PREFIX = "badges_";
+    private static final String SUFFIX = ".txt";
+
+    /** Profiles per leaf task; files are small, so a few per task keeps overhead low */
+    private static final int LEAF_SIZE = 4;
+
+    /** One leaderboard row */
+    public static class Entry {
+        public final String user;
+        public final String habit;     // null for per-user entries
+        public final double value;
+
+        Entry(String user, String habit, double value) {
+            this.user = user;
+            this.habit = habit;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return (habit == null ? user : user + " / " + habit) + " : " + value;
+        }
+    }
+
+    /** Per-profile figures handed to the optional streaming callback */
+    public static class ProfileStats {
+        public final String user;
+        public final int habits;
+        public final long completions;
+        public final double averageProgress;
+        public final int bestStreak;          // days, over habits with daily periods
+        public final int bestWeeklyStreak;    // weeks, over habits with weekly periods
+
+        ProfileStats(String user, int habits, long completions, double averageProgress,
+                     int bestStreak, int bestWeeklyStreak) {
+            this.user = user;
+            this.habits = habits;
+            this.completions = completions;
+            this.averageProgress = averageProgress;
+            this.bestStreak = bestStreak;
+            this.bestWeeklyStreak = bestWeeklyStreak;
+        }
+    }
+
+    /** Mergeable partial result; leaderboards are bounded to topK entries */
+    public static class Summary {
+        private final int topK;
+        private long profiles = 0;
+        private long habits = 0;
+        private long totalCompletions = 0;
+        private final Map<String, Long> badges = new TreeMap<>();
+        private final PriorityQueue<Entry> byStreak = new PriorityQueue<>(Comparator.comparingDouble(e -> e.value));
+        private final PriorityQueue<Entry> byWeeklyStreak = new PriorityQueue<>(Comparator.comparingDouble(e -> e.value));
+        private final PriorityQueue<Entry> byProgress = new PriorityQueue<>(Comparator.comparingDouble(e -> e.value));
+
+        Summary(int topK) { this.topK = topK; }
+
+        public long getProfiles() { return profiles; }
+        public long getHabits() { return habits; }
+        public long getTotalCompletions() { return totalCompletions; }
+        public Map<String, Long> getBadgeDistribution() { return Collections.unmodifiableMap(badges); }
+
+        /** Top daily-period habits by current streak in days, best first */
+        public List<Entry> getStreakLeaders() { return sorted(byStreak); }
+
+        /** Top weekly-period habits (Weekly, Nx/week, weekday lists) by current streak in weeks, best first */
+        public List<Entry> getWeeklyStreakLeaders() { return sorted(byWeeklyStreak); }
+
+        /** Top users by average progress across their habits, best first */
+        public List<Entry> getProgressLeaders() { return sorted(byProgress); }
+
+        Summary merge(Summary o) {
+            profiles += o.profiles;
+            habits += o.habits;
+            totalCompletions += o.totalCompletions;
+            for (Map.Entry<String, Long> e : o.badges.entrySet()) badges.merge(e.getKey(), e.getValue(), Long::sum);
+            for (Entry e : o.byStreak) offer(byStreak, e);
+            for (Entry e : o.byWeeklyStreak) offer(byWeeklyStreak, e);
+            for (Entry e : o.byProgress) offer(byProgress, e);
+            return this;
+        }
+
+        void offer(PriorityQueue<Entry> q, Entry e) {
+            if (topK <= 0) return;
+            if (q.size() < topK) {
+                q.add(e);
+            } else if (e.value > q.peek().value) {
+                q.poll();
+                q.add(e);
+            }
+        }
+
+        private static List<Entry> sorted(PriorityQueue<Entry> q) {
+            List<Entry> list = new ArrayList<>(q);
+            list.sort((a, b) -> Double.compare(b.value, a.value));
+            return list;
+        }
+    }
+
+    // ================= DISCOVERY =================
+
+    /** Lists habits_*.txt files in dir, sorted by name */
+    public static List<Path> discoverProfiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, HABIT_PREFIX + "*" + SUFFIX)) {
+            for (Path p : ds) if (Files.isRegularFile(p)) files.add(p);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    static String userOf(Path habitFile) {
+        String n = habitFile.getFileName().toString();
+        return n.substring(HABIT_PREFIX.length(), n.length() - SUFFIX.length());
+    }
+
+    // ================= AGGREGATION =================
+
+    public static Summary aggregate(Path dir, int topK) throws IOException {
+        return aggregate(dir, topK, ForkJoinPool.commonPool(), null);
+    }
+
+    /**
+     * Aggregates every profile in dir on the given pool. If perProfile is not
+     * null it is called once per profile as soon as that profile is reduced;
+     * it runs on pool threads and must be thread-safe.
+     */
+    public static Summary aggregate(Path dir, int topK, ForkJoinPool pool,
+                                    Consumer<ProfileStats> perProfile) throws IOException {
+        List<Path> files = discoverProfiles(dir);
+        return pool.invoke(new AggregateTask(files, 0, files.size(), topK, perProfile));
+    }
+
+    private static class AggregateTask extends RecursiveTask<Summary> {
+        private final List<Path> files;
+        private final int lo, hi, topK;
+        private final Consumer<ProfileStats> perProfile;
+
+        AggregateTask(List<Path> files, int lo, int hi, int topK, Consumer<ProfileStats> perProfile) {
+            this.files = files;
+            this.lo = lo;
+            this.hi = hi;
+            this.topK = topK;
+            this.perProfile = perProfile;
+        }
+
+        @Override
+        protected Summary compute() {
+            if (hi - lo <= LEAF_SIZE) {
+                Summary s = new Summary(topK);
+                for (int i = lo; i < hi; i++) reduceProfile(files.get(i), s, perProfile);
+                return s;
+            }
+            int mid = (lo + hi) >>> 1;
+            AggregateTask left = new AggregateTask(files, lo, mid, topK, perProfile);
+            left.fork();
+            Summary right = new AggregateTask(files, mid, hi, topK, perProfile).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Folds one profile's habit and badge files into s. The habit file is loaded
+     * into a {@link HabitTable} (columns, no Habit kept per line) first, so rows
+     * reach the leaderboards only once the whole file has been read.
+     */
+    static void reduceProfile(Path habitFile, Summary s, Consumer<ProfileStats> perProfile) {
+        String user = userOf(habitFile);
+        HabitTable table;
+        try {
+            table = HabitTable.load(habitFile.toFile());
+        } catch (IOException e) {
+            System.err.println("Skipping profile " + user + ": " + e.getMessage());
+            return;
+        }
+
+        int count = table.size();
+        int bestStreak = 0;
+        int bestWeeklyStreak = 0;
+        for (int r = 0; r < count; r++) {
+            int streak = table.getStreakCount(r);
+            if (table.getSchedule(r).isWeekly()) {
+                bestWeeklyStreak = Math.max(bestWeeklyStreak, streak);
+                s.offer(s.byWeeklyStreak, new Entry(user, table.getName(r), streak));
+            } else {
+                bestStreak = Math.max(bestStreak, streak);
+                s.offer(s.byStreak, new Entry(user, table.getName(r), streak));
+            }
+        }
+        long completions = table.totalCompletions();
+
+        Path badgeFile = habitFile.resolveSibling(BADGE_PREFIX + user + SUFFIX);
+        if (Files.isRegularFile(badgeFile)) {
+            try (BufferedReader br = reader(badgeFile)) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    String[] p = line.split(",", -1);
+                    if (p.length == 2) {
+                        try { s.badges.merge(p[0], Long.parseLong(p[1]), Long::sum); } catch (Exception ignore) {}
+                    }
+                }
+            } catch (IOException ignored) {}
+        }
+
+        double avg = table.averageProgress();
+        s.profiles++;
+        s.habits += count;
+        s.totalCompletions += completions;
+        if (count > 0) s.offer(s.byProgress, new Entry(user, null, avg));
+
+        if (perProfile != null) perProfile.accept(new ProfileStats(user, count, completions, avg, bestStreak, bestWeeklyStreak));
+    }
+
+    /**
+     * HabitManager writes profiles with FileWriter, i.e. in the platform default
+     * charset, so they are read back in that charset (malformed bytes replaced,
+     * as FileReader and HabitTable.load do) rather than as strict UTF-8.
+     */
+    private static BufferedReader reader(Path file) throws IOException {
+        return new BufferedReader(new InputStreamReader(Files.newInputStream(file), Charset.defaultCharset()));
+    }
+
+    // ================= CLI =================
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : ".");
+        int topK = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        long t0 = System.nanoTime();
+        Summary s = aggregate(dir, topK);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        System.out.println("HabitPal Global Summary (" + dir.toAbsolutePath().normalize() + ")");
+        System.out.println("Profiles: " + s.getProfiles() + "   Habits: " + s.getHabits()
+                + "   Total completions: " + s.getTotalCompletions());
+
+        System.out.println("\nTop streaks:");
+        for (Entry e : s.getStreakLeaders()) {
+            System.out.println(String.format(" %-16s %-20s %5d days", e.user, e.habit, (int) e.value));
+        }
+
+        System.out.println("\nTop weekly streaks:");
+        for (Entry e : s.getWeeklyStreakLeaders()) {
+            System.out.println(String.format(" %-16s %-20s %5d weeks", e.user, e.habit, (int) e.value));
+        }
+
+        System.out.println("\nTop average progress:");
+        for (Entry e : s.getProgressLeaders()) {
+            System.out.println(String.format(" %-16s %6.1f%%", e.user, e.value));
+        }
+
+        System.out.println("\nBadge distribution:");
+        for (Map.Entry<String, Long> e : s.getBadgeDistribution().entrySet()) {
+            System.out.println(" - " + e.getKey() + ": " + e.getValue());
+        }
+        System.out.println("\n(" + ms + " ms on " + ForkJoinPool.commonPool().getParallelism() + " worker threads)");
+    }
+}
@@ -6,7 +6,7 @@ import java.time.temporal.ChronoUnit;
 public class ProgressCalendarDialog extends JDialog {
     private Habit habit;
 
-    public ProgressCalendarDialog(JFrame parent, Habit habit) {
+    public ProgressCalendarDialog(JFrame parent, Habit habit, HabitManager manager) {
         super(parent, "Weekly Progress – " + habit.getName(), true);
         this.habit = habit;
 
@@ -26,10 +26,10 @@ public class ProgressCalendarDialog extends JDialog {
         JLabel[] dayLabels = new JLabel[7];
         JLabel[] markLabels = new JLabel[7];
 
-        // Days of week (Sunday → Saturday)
+        // Days of week (Monday → Sunday, the same weeks HabitSchedule counts in)
         DayOfWeek[] days = {
-                DayOfWeek.SUNDAY, DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
-                DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY, DayOfWeek.SATURDAY
+                DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY,
+                DayOfWeek.THURSDAY, DayOfWeek.FRIDAY, DayOfWeek.SATURDAY, DayOfWeek.SUNDAY
         };
 
         // Add day names on top row
@@ -42,9 +42,10 @@ public class ProgressCalendarDialog extends JDialog {
         // Fixed streak/mark logic
         LocalDate today = LocalDate.now();
         LocalDate last = habit.getLastCompletedDate();
+        HabitSchedule schedule = habit.getSchedule();
 
-        // Calculate the Sunday of the current week
-        LocalDate startOfWeek = today.minusDays(today.getDayOfWeek().getValue() % 7);
+        // Calculate the Monday of the current week
+        LocalDate startOfWeek = today.minusDays(today.getDayOfWeek().getValue() - 1);
 
         for (int i = 0; i < 7; i++) {
             LocalDate day = startOfWeek.plusDays(i);
@@ -53,25 +54,62 @@ public class ProgressCalendarDialog extends JDialog {
             // Mark for completed streak days including today
             if (habit.isDoneOn(day)) {
                     mark = "✔";
+            } else if (!schedule.isScheduledOn(day)) {
+                    mark = "–";     // not a scheduled day for this habit
             }
 
             markLabels[i] = new JLabel(mark, SwingConstants.CENTER);
             markLabels[i].setFont(new Font("SansSerif", Font.BOLD, 18));
-            markLabels[i].setForeground(mark.equals("✔") ? new Color(0, 150, 0) : Color.RED);
+            markLabels[i].setForeground(mark.equals("✔") ? new Color(0, 150, 0)
+                    : mark.equals("–") ? Color.GRAY : Color.RED);
             grid.add(markLabels[i]);
         }
 
         // ✅ Info section below the grid
-        JPanel info = new JPanel(new GridLayout(3, 1));
-        info.add(new JLabel("Streak: " + habit.getStreakCount() + " days"));
+        JPanel info = new JPanel(new GridLayout(schedule.isWeekly() ? 4 : 3, 1));
+        info.add(new JLabel("Streak: " + habit.getStreakCount() + " " + schedule.getPeriodUnit()
+                + "  [" + schedule.getLabel() + "]"));
+        if (schedule.isWeekly()) {
+            info.add(new JLabel("This week (Mon–Sun): " + habit.getPeriodCount(today)
+                    + "/" + schedule.getTarget() + " done"));
+        }
         info.add(new JLabel("Last done: " +
                 (habit.getLastCompletedDate() != null ? habit.getLastCompletedDate() : "N/A")));
         info.add(new JLabel("Progress: " + String.format("%.1f%%", habit.getProgress())));
 
+        // Year view: older years are paged in from cold storage only when picked
+        JPanel yearPanel = new JPanel(new BorderLayout(5, 5));
+        java.util.List<Integer> years = manager.getHistoryYears(habit);
+        if (!years.contains(today.getYear())) years.add(today.getYear());
+        java.util.Collections.reverse(years);
+        JComboBox<Integer> yearBox = new JComboBox<>(years.toArray(new Integer[0]));
+        JLabel yearLabel = new JLabel();
+        yearBox.addActionListener(e -> showYear(manager, (Integer) yearBox.getSelectedItem(), yearLabel));
+        showYear(manager, today.getYear(), yearLabel);
+        yearPanel.add(yearBox, BorderLayout.WEST);
+        yearPanel.add(yearLabel, BorderLayout.CENTER);
+
+        JPanel south = new JPanel(new BorderLayout(5, 5));
+        south.add(info, BorderLayout.CENTER);
+        south.add(yearPanel, BorderLayout.SOUTH);
+
         add(grid, BorderLayout.CENTER);
-        add(info, BorderLayout.SOUTH);
+        add(south, BorderLayout.SOUTH);
 
-        setSize(500, 260);
+        setSize(560, schedule.isWeekly() ? 340 : 320);
         setLocationRelativeTo(parent);
     }
+
+    /** Shows days done per month of year */
+    private void showYear(HabitManager manager, int year, JLabel target) {
+        int[] perMonth = new int[12];
+        java.util.SortedSet<LocalDate> done = manager.getCompletionsInYear(habit, year);
+        for (LocalDate d : done) perMonth[d.getMonthValue() - 1]++;
+        StringBuilder sb = new StringBuilder("<html>" + done.size() + " days done<br>");
+        for (int m = 0; m < 12; m++) {
+            sb.append(Month.of(m + 1).toString(), 0, 3).append(' ').append(perMonth[m]);
+            sb.append(m == 5 ? "<br>" : m < 11 ? " · " : "");
+        }
+        target.setText(sb.append("</html>").toString());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+/**
+ * One dialog for every reminder that is due at (roughly) the same time.
+ * Each habit gets its own Mark Done / Remind in 10 min / Skip choice and the
+ * whole set is returned to HabitManager as a single batch. Closing the
+ * window without choosing counts as Snooze All, so no reminder is lost.
+ */
+public class ReminderDigestDialog extends JDialog {
+    private final Map<Habit, ButtonGroup> groups = new LinkedHashMap<>();
+    private final Map<Habit, JRadioButton[]> buttons = new LinkedHashMap<>();
+    private Map<Habit, HabitManager.ReminderAction> decisions;     // null until a button was used
+
+    public ReminderDigestDialog(Frame parent, List<Habit> due) {
+        super(parent, "Habit Reminder", true);
+        setLayout(new BorderLayout(10, 10));
+
+        JLabel header = new JLabel(due.size() == 1
+                ? "Time for your habit:"
+                : "Time for " + due.size() + " habits:", SwingConstants.CENTER);
+        header.setFont(new Font("SansSerif", Font.BOLD, 15));
+        add(header, BorderLayout.NORTH);
+
+        JPanel rows = new JPanel(new GridLayout(due.size(), 4, 6, 6));
+        for (Habit h : due) {
+            rows.add(new JLabel(h.getName() + "  [" + h.getFrequency() + "]"));
+            ButtonGroup g = new ButtonGroup();
+            JRadioButton done = new JRadioButton("Mark Done", true);
+            JRadioButton snooze = new JRadioButton("Remind in 10 min");
+            JRadioButton skip = new JRadioButton("Skip");
+            for (JRadioButton b : new JRadioButton[]{done, snooze, skip}) {
+                g.add(b);
+                rows.add(b);
+            }
+            groups.put(h, g);
+            buttons.put(h, new JRadioButton[]{done, snooze, skip});
+        }
+        add(new JScrollPane(rows), BorderLayout.CENTER);
+
+        JPanel bottom = new JPanel();
+        JButton applyBtn = new JButton("Apply");
+        JButton allDoneBtn = new JButton("Mark All Done");
+        JButton snoozeAllBtn = new JButton("Snooze All");
+        bottom.add(applyBtn);
+        bottom.add(allDoneBtn);
+        bottom.add(snoozeAllBtn);
+        add(bottom, BorderLayout.SOUTH);
+
+        setSize(560, Math.min(480, 120 + 32 * due.size()));
+        setLocationRelativeTo(parent);
+
+        applyBtn.addActionListener(e -> {
+            Map<Habit, HabitManager.ReminderAction> m = new LinkedHashMap<>();
+            for (Map.Entry<Habit, JRadioButton[]> en : buttons.entrySet()) {
+                JRadioButton[] b = en.getValue();
+                if (b[0].isSelected()) m.put(en.getKey(), HabitManager.ReminderAction.DONE);
+                else if (b[1].isSelected()) m.put(en.getKey(), HabitManager.ReminderAction.SNOOZE);
+                else m.put(en.getKey(), HabitManager.ReminderAction.SKIP);
+            }
+            decisions = m;
+            dispose();
+        });
+
+        allDoneBtn.addActionListener(e -> {
+            decisions = allOf(HabitManager.ReminderAction.DONE);
+            dispose();
+        });
+
+        snoozeAllBtn.addActionListener(e -> {
+            decisions = allOf(HabitManager.ReminderAction.SNOOZE);
+            dispose();
+        });
+    }
+
+    /** Choices made by the user; every habit snoozed if the dialog was closed without applying */
+    public Map<Habit, HabitManager.ReminderAction> getDecisions() {
+        return decisions != null ? decisions : allOf(HabitManager.ReminderAction.SNOOZE);
+    }
+
+    private Map<Habit, HabitManager.ReminderAction> allOf(HabitManager.ReminderAction a) {
+        Map<Habit, HabitManager.ReminderAction> m = new LinkedHashMap<>();
+        for (Habit h : groups.keySet()) m.put(h, a);
+        return m;
+    }
+}
@@ -0,0 +1,181 @@
+import java.io.*;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Undo/redo stacks for HabitManager.
+ *
+ * Each entry is a unit of one or more small {@link Edit}s that describe a
+ * change by its before/after values (a completion date, the old and new
+ * metadata, or one habit line for add/delete), never a copy of the habit list.
+ * HabitManager knows how to apply an edit forwards (redo) or backwards (undo).
+ *
+ * A bulk operation (e.g. a reminder digest marking several habits) is one
+ * unit between {@link #beginBatch()} and {@link #endBatch()}. The oldest units
+ * are dropped once the estimated size exceeds the memory budget
+ * (-Dhabitpal.undoBudgetKb, default 256). Both stacks are saved after every
+ * change so history survives a restart.
+ */
+public class UndoHistory {
+    public static final String ADD = "ADD";        // idx, habitLine
+    public static final String DELETE = "DEL";     // idx, habitLine, archived runs (purged from cold storage)
+    public static final String EDIT = "EDIT";      // idx, old name/freq/total/reminder, new name/freq/total/reminder
+    public static final String MARK = "MARK";      // name, epochDay, oldBadge, newBadge
+
+    /** One reversible change */
+    public static final class Edit {
+        final String type;
+        final String[] args;
+
+        Edit(String type, String... args) {
+            this.type = type;
+            this.args = args;
+        }
+
+        String arg(int i) { return i < args.length ? args[i] : ""; }
+
+        int argInt(int i) {
+            try { return Integer.parseInt(arg(i)); } catch (NumberFormatException e) { return 0; }
+        }
+
+        /** Rough heap size: object headers plus two bytes per char */
+        long estimatedBytes() {
+            long n = 48 + type.length() * 2L;
+            for (String a : args) n += 40 + a.length() * 2L;
+            return n;
+        }
+
+        String encode() {
+            StringBuilder sb = new StringBuilder(type);
+            for (String a : args) sb.append(',').append(URLEncoder.encode(a, StandardCharsets.UTF_8));
+            return sb.toString();
+        }
+
+        static Edit decode(String s) {
+            String[] p = s.split(",", -1);
+            String[] args = new String[p.length - 1];
+            for (int i = 1; i < p.length; i++) args[i - 1] = URLDecoder.decode(p[i], StandardCharsets.UTF_8);
+            return new Edit(p[0], args);
+        }
+    }
+
+    private final File file;
+    private final long budgetBytes;
+    private final Deque<List<Edit>> undo = new ArrayDeque<>();
+    private final Deque<List<Edit>> redo = new ArrayDeque<>();
+    private long bytes = 0;
+
+    private List<Edit> batch;
+    private int batchDepth = 0;
+
+    public UndoHistory(File file) {
+        this(file, Long.getLong("habitpal.undoBudgetKb", 256) * 1024);
+    }
+
+    public UndoHistory(File file, long budgetBytes) {
+        this.file = file;
+        this.budgetBytes = budgetBytes;
+        load();
+    }
+
+    public boolean canUndo() { return !undo.isEmpty(); }
+    public boolean canRedo() { return !redo.isEmpty(); }
+
+    /** Records one edit; inside a batch it joins the batch's unit */
+    public void record(Edit e) {
+        if (batch != null) {
+            batch.add(e);
+            return;
+        }
+        push(new ArrayList<>(Collections.singletonList(e)));
+    }
+
+    public void beginBatch() {
+        if (batchDepth++ == 0) batch = new ArrayList<>();
+    }
+
+    public void endBatch() {
+        if (batchDepth == 0 || --batchDepth > 0) return;
+        List<Edit> unit = batch;
+        batch = null;
+        if (!unit.isEmpty()) push(unit);
+    }
+
+    /** Removes the newest undo unit and moves it to the redo stack; null if none */
+    public List<Edit> popUndo() {
+        List<Edit> unit = undo.pollLast();
+        if (unit == null) return null;
+        redo.addLast(unit);
+        save();
+        return unit;
+    }
+
+    /** Removes the newest redo unit and moves it back to the undo stack; null if none */
+    public List<Edit> popRedo() {
+        List<Edit> unit = redo.pollLast();
+        if (unit == null) return null;
+        undo.addLast(unit);
+        save();
+        return unit;
+    }
+
+    private void push(List<Edit> unit) {
+        undo.addLast(unit);
+        for (List<Edit> r : redo) bytes -= size(r);
+        redo.clear();
+        bytes += size(unit);
+        while (bytes > budgetBytes && undo.size() > 1) bytes -= size(undo.pollFirst());
+        save();
+    }
+
+    private static long size(List<Edit> unit) {
+        long n = 32;
+        for (Edit e : unit) n += e.estimatedBytes();
+        return n;
+    }
+
+    // ================= PERSISTENCE =================
+    // one unit per line: "U" or "R", then the unit's edits separated by ';'
+
+    private void save() {
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writeStack(bw, "U", undo);
+            writeStack(bw, "R", redo);
+        } catch (IOException e) {
+            System.err.println("Error saving undo history: " + e.getMessage());
+        }
+    }
+
+    private static void writeStack(BufferedWriter bw, String tag, Deque<List<Edit>> stack) throws IOException {
+        for (List<Edit> unit : stack) {
+            bw.write(tag);
+            for (Edit e : unit) {
+                bw.write(';');
+                bw.write(e.encode());
+            }
+            bw.newLine();
+        }
+    }
+
+    private void load() {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] p = line.split(";");
+                if (p.length < 2) continue;
+                List<Edit> unit = new ArrayList<>();
+                for (int i = 1; i < p.length; i++) {
+                    try { unit.add(Edit.decode(p[i])); } catch (Exception ignore) {}
+                }
+                if (unit.isEmpty()) continue;
+                if (p[0].equals("U")) undo.addLast(unit);
+                else if (p[0].equals("R")) redo.addLast(unit);
+                bytes += size(unit);
+            }
+        } catch (IOException ignored) {}
+    }
+}